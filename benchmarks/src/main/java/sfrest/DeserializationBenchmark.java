@@ -0,0 +1,81 @@
+package sfrest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Binding one recorded query page of 200 records into maps versus typed records, without any HTTP.
+ */
+@State(Scope.Benchmark)
+public class DeserializationBenchmark {
+
+    private PayloadServer server;
+    private SFRestClient client;
+    private ObjectMapper mapObjectMapper;
+    private ObjectMapper typedObjectMapper;
+    private JavaType typedPage;
+    private byte[] page;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new PayloadServer();
+        client = server.createClient();
+        page = server.getQueryPage();
+
+        mapObjectMapper = client.getRestTemplate().getObjectMapper();
+        typedObjectMapper = client.getRecordBinder().getObjectMapper();
+        typedPage = typedObjectMapper.getTypeFactory().constructParametricType(QueryResult.class, Account.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.destroy();
+        server.stop();
+    }
+
+    @Benchmark
+    public Map<?, ?> maps() throws Exception {
+        return mapObjectMapper.readValue(page, Map.class);
+    }
+
+    @Benchmark
+    public QueryResult<Account> typed() throws Exception {
+        return typedObjectMapper.readValue(page, typedPage);
+    }
+
+    @SObjectType("Account")
+    public static class Account {
+        @JsonProperty("Id")
+        public String id;
+        @JsonProperty("Name")
+        public String name;
+        @JsonProperty("Industry")
+        public String industry;
+        @JsonProperty("AnnualRevenue")
+        public BigDecimal annualRevenue;
+        @JsonProperty("NumberOfEmployees")
+        public Integer numberOfEmployees;
+        @JsonProperty("BillingCity")
+        public String billingCity;
+        @JsonProperty("LastModifiedDate")
+        public Date lastModifiedDate;
+        @JsonProperty("Owner")
+        public Owner owner;
+    }
+
+    public static class Owner {
+        @JsonProperty("Name")
+        public String name;
+    }
+}
@@ -0,0 +1,97 @@
+package sfrest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.web.client.ResponseErrorHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * Translating a recorded error response into an {@link SFException}, in memory and through a full request.
+ */
+@State(Scope.Benchmark)
+public class ErrorParsingBenchmark {
+
+    private PayloadServer server;
+    private SFRestClient client;
+    private ResponseErrorHandler errorHandler;
+    private byte[] error;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new PayloadServer();
+        client = server.createClient();
+        errorHandler = client.getRestTemplate().getErrorHandler();
+        error = server.getError();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.destroy();
+        server.stop();
+    }
+
+    @Benchmark
+    public SFException handleError() throws Exception {
+        try {
+            errorHandler.handleError(new ErrorResponse(error));
+            throw new IllegalStateException("Error not translated");
+        } catch (SFException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public SFException request() {
+        try {
+            client.getSObject("Account", "001D00000000001AAA");
+            throw new IllegalStateException("Error not translated");
+        } catch (SFException e) {
+            return e;
+        }
+    }
+
+    private static class ErrorResponse extends AbstractClientHttpResponse {
+
+        private final byte[] body;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        ErrorResponse(byte[] body) {
+            this.body = body;
+            headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return HttpStatus.BAD_REQUEST.value();
+        }
+
+        @Override
+        public String getStatusText() {
+            return HttpStatus.BAD_REQUEST.getReasonPhrase();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
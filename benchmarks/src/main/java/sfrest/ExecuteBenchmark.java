@@ -0,0 +1,53 @@
+package sfrest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpMethod;
+
+import java.util.Map;
+
+/**
+ * Overhead of a single request through {@link SFRestClient}, compared with the raw {@link SFRestTemplate} call.
+ */
+@State(Scope.Benchmark)
+public class ExecuteBenchmark {
+
+    private PayloadServer server;
+    private SFRestClient client;
+    private String accountUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new PayloadServer();
+        client = server.createClient();
+        accountUrl = server.getUrl() + SFRestClient.BASE_URI_REST + "/sobjects/Account/" + PayloadServer.ACCOUNT_ID;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.destroy();
+        server.stop();
+    }
+
+    @Benchmark
+    public Map<String, ?> getSObject() {
+        return client.getSObject("Account", PayloadServer.ACCOUNT_ID);
+    }
+
+    @Benchmark
+    public String getString() {
+        return client.getString(SFRestClient.BASE_URI_REST + "/sobjects/{type}/{id}", HttpMethod.GET, null, "Account", PayloadServer.ACCOUNT_ID);
+    }
+
+    /**
+     * Baseline without token handling, header copying and uri resolution.
+     */
+    @Benchmark
+    public String templateBaseline() {
+        return client.getRestTemplate().getForObject(accountUrl, String.class);
+    }
+}
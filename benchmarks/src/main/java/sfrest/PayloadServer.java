@@ -0,0 +1,138 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process HTTP server replaying recorded salesforce payloads, so benchmarks measure the client rather than the org.
+ * <p>
+ * Serves a token endpoint, a single Account record, an error response and a query of {@link #PAGES} pages.
+ * </p>
+ */
+class PayloadServer {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    static final int PAGES = 5;
+    static final String ACCOUNT_ID = "001D00000000000AAA";
+
+    static {
+        // Without it, delayed acks on loopback add ~40ms to every request and hide the client's own cost.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private static final String NEXT_RECORDS_URL = "/services/data/v29.0/query/01gD0000002HU6KIAW-200";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[][] queryPages = new byte[PAGES][];
+    private final byte[] account;
+    private final byte[] error;
+    private final byte[] token;
+
+    PayloadServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 128);
+
+        String page = payload("query-page.json");
+        for (int i = 0; i < PAGES; i++) {
+            String content = i < PAGES - 1
+                    ? page.replace(NEXT_RECORDS_URL, "/services/data/v29.0/query/01gD0000002HU6KIAW-" + (i + 1))
+                    : page.replace("\"done\":false,\"nextRecordsUrl\":\"" + NEXT_RECORDS_URL + "\"", "\"done\":true");
+            queryPages[i] = content.getBytes(UTF_8);
+        }
+        account = payload("account.json").getBytes(UTF_8);
+        error = payload("error-invalid-field.json").getBytes(UTF_8);
+        token = payload("token.json").replace("INSTANCE_URL", getUrl()).getBytes(UTF_8);
+
+        server.createContext("/services/oauth2/token", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, token);
+            }
+        });
+        server.createContext("/services/data/v29.0/sobjects/Account/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (exchange.getRequestURI().getPath().endsWith(ACCOUNT_ID)) {
+                    respond(exchange, 200, account);
+                } else {
+                    respond(exchange, 400, error);
+                }
+            }
+        });
+        server.createContext("/services/data/v29.0/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                int dash = path.lastIndexOf('-');
+                respond(exchange, 200, queryPages[dash < 0 ? 0 : Integer.parseInt(path.substring(dash + 1))]);
+            }
+        });
+
+        executor = Executors.newFixedThreadPool(16);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    byte[] getQueryPage() {
+        return queryPages[0];
+    }
+
+    byte[] getError() {
+        return error;
+    }
+
+    /**
+     * A client logging in with the username-password flow against this server.
+     */
+    SFRestClient createClient() {
+        final URI baseUri = URI.create(getUrl() + "/services/oauth2/");
+        UserPassTokenProvider tokenProvider = new UserPassTokenProvider();
+        tokenProvider.setClientId("benchmark");
+        tokenProvider.setClientSecret("secret");
+        tokenProvider.setUsername("benchmark@example.com");
+        tokenProvider.setPassword("password");
+        tokenProvider.setEnvironment(new Environment("Benchmark", "localhost") {
+            @Override
+            public URI getTokenURI() {
+                return baseUri.resolve("token");
+            }
+        });
+
+        return new SFRestClient(tokenProvider, new SFRestClient.DefaultTokenStorage(), new ConnectionConfig());
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        StreamUtils.copyToByteArray(exchange.getRequestBody());
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String payload(String name) throws IOException {
+        try (InputStream in = PayloadServer.class.getResourceAsStream("/payloads/" + name)) {
+            return StreamUtils.copyToString(in, UTF_8);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package sfrest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+
+/**
+ * Reading all pages of a query, {@link PayloadServer#PAGES} pages of 200 records.
+ */
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    private static final String SOQL = "SELECT Id, Name, Industry, AnnualRevenue, NumberOfEmployees, BillingCity, LastModifiedDate, Owner.Name FROM Account";
+
+    private PayloadServer server;
+    private SFRestClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new PayloadServer();
+        client = server.createClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.destroy();
+        server.stop();
+    }
+
+    @Benchmark
+    public void pages(Blackhole blackhole) {
+        Query query = new Query(SOQL);
+        QueryResult<Map<String, ?>> qResult;
+        do {
+            qResult = client.query(query);
+            blackhole.consume(qResult.getRecords());
+        } while (!qResult.isDone());
+    }
+
+    @Benchmark
+    public void streaming(final Blackhole blackhole) {
+        RecordHandler<Map<String, ?>> handler = new RecordHandler<Map<String, ?>>() {
+            @Override
+            public void handleRecord(Map<String, ?> record) {
+                blackhole.consume(record);
+            }
+        };
+
+        Query query = new Query(SOQL);
+        QueryResult<Map<String, ?>> qResult;
+        do {
+            qResult = client.query(query, handler);
+        } while (!qResult.isDone());
+    }
+
+    @Benchmark
+    public void iterator(Blackhole blackhole) {
+        try (QueryIterator records = client.queryIterator(new Query(SOQL), 2)) {
+            while (records.hasNext()) {
+                blackhole.consume(records.next());
+            }
+        }
+    }
+}
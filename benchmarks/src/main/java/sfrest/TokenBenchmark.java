@@ -0,0 +1,58 @@
+package sfrest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Token lookup by many threads, with and without the token being invalidated concurrently.
+ * <p>
+ * In the contended group one thread keeps clearing the token, so readers race to log in again against the stub.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class TokenBenchmark {
+
+    private PayloadServer server;
+    private SFRestClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new PayloadServer();
+        client = server.createClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.destroy();
+        server.stop();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Token stored() {
+        return client.getToken();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(7)
+    public Token acquire() {
+        return client.getToken();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void expire() {
+        Blackhole.consumeCPU(100000);
+        client.getTokenStorage().clearToken();
+    }
+}
@@ -1,6 +1,8 @@
 package sfrest;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 
 public abstract class AbstractTokenProvider implements TokenProvider {
 
@@ -40,14 +42,41 @@ public abstract class AbstractTokenProvider implements TokenProvider {
         return token.getRefreshToken() != null;
     }
 
+    /**
+     * Requests a new access token with the refresh token grant, and updates the given token with the result.
+     */
     @Override
     public void refreshToken(SFRestTemplate template, Token token) {
-        // TODO:
-        throw new UnsupportedOperationException();
+        if (!isRefreshable(token)) {
+            throw new IllegalArgumentException("Token has no refresh token");
+        }
+
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("grant_type", "refresh_token");
+        params.add("client_id", clientId);
+        if (clientSecret != null) {
+            params.add("client_secret", clientSecret);
+        }
+        params.add("refresh_token", token.getRefreshToken());
+
+        Token refreshed = template.postForObject(environment.getTokenURI(), params, Token.class);
+
+        // The refresh response doesn't include the refresh token, so keep the existing one.
+        token.setId(refreshed.getId());
+        token.setIssueTime(refreshed.getIssueTime());
+        token.setInstanceUrl(refreshed.getInstanceUrl());
+        token.setSignature(refreshed.getSignature());
+        token.setAccessToken(refreshed.getAccessToken());
     }
 
+    /**
+     * Revoking the refresh token also invalidates all access tokens issued with it.
+     */
     @Override
     public void revokeToken(SFRestTemplate template, Token token, boolean includingRefreshToken) {
-        // TODO:
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("token", includingRefreshToken && isRefreshable(token) ? token.getRefreshToken() : token.getAccessToken());
+
+        template.postForLocation(environment.getRevokeTokenURI(), params);
     }
 }
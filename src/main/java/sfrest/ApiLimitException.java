@@ -0,0 +1,16 @@
+package sfrest;
+
+/**
+ * Throws this exception when the org's API request limit is exceeded, or when {@link ApiLimitGuard} rejects a request
+ * because usage has passed its reject threshold.
+ */
+public class ApiLimitException extends SFException {
+
+    public ApiLimitException(String errorCode, String message) {
+        super(errorCode, message);
+    }
+
+    public ApiLimitException(String errorCode, String message, String response) {
+        super(errorCode, message, response);
+    }
+}
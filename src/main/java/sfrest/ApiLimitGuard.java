@@ -0,0 +1,213 @@
+package sfrest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the org's API request usage and slows down or rejects requests when it gets close to the limit.
+ * <p>
+ * Usage is taken from the {@code Sforce-Limit-Info} header of every response, and optionally from polling the
+ * {@code /limits} resource, see {@link #start(SFRestClient, long)}.
+ * </p>
+ * <p>
+ * Once usage passes the slow-down threshold, each request is delayed, growing linearly up to the max delay as usage
+ * approaches the reject threshold. Past the reject threshold requests fail with {@link ApiLimitException} without being
+ * sent. Clients carrying low-priority traffic should use lower thresholds than interactive ones, so they back off first.
+ * </p>
+ * <p>
+ * Usage older than the usage time to live is ignored, so without polling, a request gets through once it expires and
+ * reports the current usage. Otherwise rejection would never end, as rejected requests report nothing.
+ * </p>
+ *
+ * @see SFRestClient#setApiLimitGuard(ApiLimitGuard)
+ */
+public class ApiLimitGuard implements ClientHttpRequestInterceptor, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiLimitGuard.class);
+
+    static final String LIMIT_INFO_HEADER = "Sforce-Limit-Info";
+
+    private double slowDownThreshold = 0.8;
+    private double rejectThreshold = 0.95;
+    private long maxDelayMillis = 1000;
+    private long usageTimeToLive = 60000;
+
+    private volatile ApiUsage usage;
+    private ScheduledExecutorService poller;
+
+    public double getSlowDownThreshold() {
+        return slowDownThreshold;
+    }
+
+    /**
+     * Usage ratio from which requests are delayed, defaults to 0.8.
+     */
+    public void setSlowDownThreshold(double slowDownThreshold) {
+        this.slowDownThreshold = slowDownThreshold;
+    }
+
+    public double getRejectThreshold() {
+        return rejectThreshold;
+    }
+
+    /**
+     * Usage ratio from which requests are rejected, defaults to 0.95; 1 or above to never reject.
+     */
+    public void setRejectThreshold(double rejectThreshold) {
+        this.rejectThreshold = rejectThreshold;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public void setMaxDelayMillis(long maxDelayMillis) {
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public long getUsageTimeToLive() {
+        return usageTimeToLive;
+    }
+
+    /**
+     * Milliseconds a reported usage is acted upon, defaults to 1 minute; non-positive to keep it until the next report.
+     */
+    public void setUsageTimeToLive(long usageTimeToLive) {
+        this.usageTimeToLive = usageTimeToLive;
+    }
+
+    /**
+     * The latest known usage, or null if none has been reported yet.
+     */
+    public ApiUsage getUsage() {
+        return usage;
+    }
+
+    public void setUsage(ApiUsage usage) {
+        this.usage = usage;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        throttle(request);
+
+        ClientHttpResponse response = execution.execute(request, body);
+
+        String limitInfo = response.getHeaders().getFirst(LIMIT_INFO_HEADER);
+        if (limitInfo != null) {
+            ApiUsage reported = ApiUsage.parse(limitInfo, System.currentTimeMillis());
+            if (reported != null) {
+                usage = reported;
+            }
+        }
+
+        return response;
+    }
+
+    /**
+     * Delay before sending a request at the given usage, 0 if below the slow-down threshold.
+     */
+    long delayMillis(ApiUsage usage) {
+        double ratio = usage.getRatio();
+        if (ratio < slowDownThreshold) {
+            return 0;
+        }
+
+        double range = Math.min(rejectThreshold, 1) - slowDownThreshold;
+        double factor = range > 0 ? Math.min((ratio - slowDownThreshold) / range, 1) : 1;
+        return (long) (maxDelayMillis * factor);
+    }
+
+    private void throttle(HttpRequest request) {
+        ApiUsage current = usage;
+        if (current == null || request.getURI().getPath().endsWith("/limits")) {
+            return; // Polling limits is never held back, otherwise usage can't recover once rejecting.
+        }
+        if (usageTimeToLive > 0 && System.currentTimeMillis() - current.getTimestamp() > usageTimeToLive) {
+            return; // Sent as a probe, its response reports the current usage.
+        }
+
+        if (current.getRatio() >= rejectThreshold) {
+            throw new ApiLimitException("API_USAGE_THRESHOLD", "API usage " + current.getUsed() + "/" + current.getMax()
+                    + " has passed the reject threshold, " + request.getMethod() + " " + request.getURI() + " not sent");
+        }
+
+        long delay = delayMillis(current);
+        if (delay > 0) {
+            logger.debug("API usage {}/{}, delaying request for {} ms", current.getUsed(), current.getMax(), delay);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SFException("Interrupted while delaying request", e);
+            }
+        }
+    }
+
+    /**
+     * Reads the daily API request usage from the {@code /limits} resource.
+     */
+    @SuppressWarnings("unchecked")
+    public ApiUsage pollLimits(SFRestClient client) {
+        Map<String, ?> limits = client.getMap(SFRestClient.BASE_URI_REST + "/limits", HttpMethod.GET, null);
+        Map<String, ?> dailyApiRequests = (Map<String, ?>) limits.get("DailyApiRequests");
+        if (dailyApiRequests == null) {
+            return usage;
+        }
+
+        long max = ((Number) dailyApiRequests.get("Max")).longValue();
+        long remaining = ((Number) dailyApiRequests.get("Remaining")).longValue();
+        usage = new ApiUsage(max - remaining, max, System.currentTimeMillis());
+        return usage;
+    }
+
+    /**
+     * Starts polling the {@code /limits} resource in the background, useful when the client is idle for long periods
+     * while other services consume the allowance.
+     */
+    public synchronized void start(final SFRestClient client, long intervalMillis) {
+        if (poller != null) {
+            return;
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sfrest-limits-");
+        threadFactory.setDaemon(true);
+
+        poller = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        poller.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pollLimits(client);
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to poll API limits", e);
+                }
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+}
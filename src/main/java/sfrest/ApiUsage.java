@@ -0,0 +1,76 @@
+package sfrest;
+
+import org.springframework.core.style.ToStringCreator;
+
+/**
+ * Snapshot of the org's API request usage in the rolling 24 hour window.
+ *
+ * @see ApiLimitGuard
+ */
+public class ApiUsage {
+
+    private final long used;
+    private final long max;
+    private final long timestamp;
+
+    public ApiUsage(long used, long max, long timestamp) {
+        this.used = used;
+        this.max = max;
+        this.timestamp = timestamp;
+    }
+
+    public long getUsed() {
+        return used;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getRemaining() {
+        return Math.max(max - used, 0);
+    }
+
+    /**
+     * Used fraction of the allowance, between 0 and 1.
+     */
+    public double getRatio() {
+        return max > 0 ? Math.min((double) used / max, 1) : 0;
+    }
+
+    /**
+     * When the usage was reported, in milliseconds since epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Parses a {@code Sforce-Limit-Info} header value such as {@code api-usage=18/5000}, returns null if there's no api usage.
+     */
+    static ApiUsage parse(String limitInfo, long timestamp) {
+        for (String limit : limitInfo.split(",")) {
+            String[] keyValue = limit.trim().split("=", 2);
+            if (keyValue.length == 2 && keyValue[0].equals("api-usage")) {
+                String[] usage = keyValue[1].split("/", 2);
+                if (usage.length == 2) {
+                    try {
+                        return new ApiUsage(Long.parseLong(usage[0].trim()), Long.parseLong(usage[1].trim()), timestamp);
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringCreator(this)
+                .append("used", used)
+                .append("max", max)
+                .toString();
+    }
+}
@@ -0,0 +1,240 @@
+package sfrest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureTask;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Asynchronous facade of {@link SFRestClient}, requests run on an executor and results are delivered as {@link ListenableFuture}s.
+ * <p>
+ * At most {@code maxInFlight} requests run at a time, further requests are queued without blocking the caller.
+ * Token handling is the same as the underlying client, which is shared by all requests.
+ * </p>
+ */
+public class AsyncSFRestClient implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncSFRestClient.class);
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 32;
+
+    private final SFRestClient client;
+    private final Semaphore inFlight;
+    private final Queue<RequestTask<?>> pending = new ConcurrentLinkedQueue<>();
+    private Executor executor;
+    private ExecutorService defaultExecutor;
+    private volatile boolean destroyed;
+
+    public AsyncSFRestClient(SFRestClient client) {
+        this(client, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public AsyncSFRestClient(SFRestClient client, int maxInFlight) {
+        this.client = client;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sfrest-async-");
+        threadFactory.setDaemon(true);
+        this.defaultExecutor = Executors.newCachedThreadPool(threadFactory);
+        this.executor = defaultExecutor;
+    }
+
+    public SFRestClient getClient() {
+        return client;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Executor running the requests, defaults to a cached thread pool which never grows beyond {@code maxInFlight} threads.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+
+        if (defaultExecutor != null) {
+            defaultExecutor.shutdown();
+            defaultExecutor = null;
+        }
+    }
+
+    /**
+     * Number of requests queued but not started yet.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public ListenableFuture<String> getString(final String uri, final HttpMethod method, final Object requestBody, final Object... uriVariables) {
+        return submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return client.getString(uri, method, requestBody, uriVariables);
+            }
+        });
+    }
+
+    public ListenableFuture<Map<String, ?>> getMap(final String uri, final HttpMethod method, final Object requestBody, final Object... uriVariables) {
+        return submit(new Callable<Map<String, ?>>() {
+            @Override
+            public Map<String, ?> call() {
+                return client.getMap(uri, method, requestBody, uriVariables);
+            }
+        });
+    }
+
+    public ListenableFuture<Map<String, ?>> getSObject(final String type, final String id, final String... fields) {
+        return submit(new Callable<Map<String, ?>>() {
+            @Override
+            public Map<String, ?> call() {
+                return client.getSObject(type, id, fields);
+            }
+        });
+    }
+
+    public <T> ListenableFuture<T> getSObject(final Class<T> type, final String id) {
+        return submit(new Callable<T>() {
+            @Override
+            public T call() {
+                return client.getSObject(type, id);
+            }
+        });
+    }
+
+    public ListenableFuture<QueryResult<Map<String, ?>>> query(final Query query) {
+        return submit(new Callable<QueryResult<Map<String, ?>>>() {
+            @Override
+            public QueryResult<Map<String, ?>> call() {
+                return client.query(query);
+            }
+        });
+    }
+
+    public <T> ListenableFuture<QueryResult<T>> query(final Query query, final Class<T> type) {
+        return submit(new Callable<QueryResult<T>>() {
+            @Override
+            public QueryResult<T> call() {
+                return client.query(query, type);
+            }
+        });
+    }
+
+    public <T> ListenableFuture<T> execute(final String uri, final HttpMethod method, final Object requestBody,
+                                           final ParameterizedTypeReference<T> responseType, final Object... uriVariables) {
+        return submit(new Callable<T>() {
+            @Override
+            public T call() {
+                return client.execute(uri, method, requestBody, responseType, uriVariables);
+            }
+        });
+    }
+
+    /**
+     * Runs any work against the client asynchronously, subject to the same in-flight limit.
+     */
+    public <T> ListenableFuture<T> submit(Callable<T> call) {
+        RequestTask<T> task = new RequestTask<>(call);
+        pending.add(task);
+        if (destroyed) {
+            failPending(); // Also fails tasks racing with destroy().
+        } else {
+            dispatch();
+        }
+
+        return task;
+    }
+
+    private void dispatch() {
+        while (!pending.isEmpty() && inFlight.tryAcquire()) {
+            RequestTask<?> task = pending.poll();
+            if (task == null) {
+                inFlight.release();
+                continue;
+            }
+
+            try {
+                executor.execute(new Dispatch(task));
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                task.fail(e);
+                logger.warn("Request rejected by executor", e);
+            }
+        }
+    }
+
+    /**
+     * Fails queued requests, and requests not started yet by the default executor, with a {@link RejectedExecutionException}.
+     * Running requests are interrupted.
+     */
+    @Override
+    public void destroy() {
+        destroyed = true;
+        failPending();
+
+        if (defaultExecutor != null) {
+            for (Runnable runnable : defaultExecutor.shutdownNow()) {
+                if (runnable instanceof Dispatch) {
+                    ((Dispatch) runnable).task.fail(new RejectedExecutionException("Async client destroyed"));
+                }
+            }
+        }
+    }
+
+    private void failPending() {
+        RequestTask<?> task;
+        while ((task = pending.poll()) != null) {
+            task.fail(new RejectedExecutionException("Async client destroyed"));
+        }
+    }
+
+    /**
+     * Runs a request on the executor, then starts the next pending one.
+     */
+    private class Dispatch implements Runnable {
+
+        private final RequestTask<?> task;
+
+        Dispatch(RequestTask<?> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                inFlight.release();
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * Future of a request, which can be failed without running it.
+     */
+    private static class RequestTask<T> extends ListenableFutureTask<T> {
+
+        RequestTask(Callable<T> callable) {
+            super(callable);
+        }
+
+        void fail(Throwable cause) {
+            setException(cause);
+        }
+    }
+}
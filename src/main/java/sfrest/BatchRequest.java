@@ -0,0 +1,304 @@
+package sfrest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Collects requests and sends them in one round trip through the <a href="https://developer.salesforce.com/docs/atlas.en-us.api_rest.meta/api_rest/resources_composite_batch.htm">Composite Batch</a> resource.
+ * <p>
+ * Each added request returns a {@link BatchResult}, which holds its own result or error after {@link #execute()}.
+ * Batches larger than {@link #MAX_SUBREQUESTS} are sent in several round trips.
+ * </p>
+ * <p>
+ * Only REST API resources ({@code /services/data/...}) can be batched, they are sent with the batch API version.
+ * </p>
+ *
+ * @see SFRestClient#batch()
+ */
+public class BatchRequest {
+
+    /**
+     * Composite batch resource is available since API v34.0.
+     */
+    public static final String BASE_URI_BATCH = "/services/data/v34.0";
+
+    public static final int MAX_SUBREQUESTS = 25;
+
+    private static final Pattern REST_URI_PATTERN = Pattern.compile("^/services/data/v\\d+\\.\\d+(/.*)$");
+
+    private static final ParameterizedTypeReference<Map<String, ?>> TYPE_MAP = new ParameterizedTypeReference<Map<String, ?>>() {
+    };
+
+    private final SFRestClient client;
+    private final ObjectMapper mapper;
+    private final List<Item<?>> items = new ArrayList<>();
+    private boolean haltOnError;
+
+    BatchRequest(SFRestClient client) {
+        this.client = client;
+        this.mapper = client.getRestTemplate().getObjectMapper();
+    }
+
+    public boolean isHaltOnError() {
+        return haltOnError;
+    }
+
+    /**
+     * Whether to skip the remaining subrequests once one fails, they then fail with {@code BATCH_PROCESSING_HALTED}.
+     */
+    public void setHaltOnError(boolean haltOnError) {
+        this.haltOnError = haltOnError;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public <T> BatchResult<T> add(HttpMethod method, String uri, Object requestBody, ParameterizedTypeReference<T> responseType, Object... uriVariables) {
+        final JavaType type = mapper.getTypeFactory().constructType(responseType.getType());
+        return add(method, uri, requestBody, new ResultConverter<T>() {
+            @Override
+            public T convert(Object result) {
+                return mapper.convertValue(result, type);
+            }
+        }, uriVariables);
+    }
+
+    public BatchResult<Map<String, ?>> getMap(String uri, Object... uriVariables) {
+        return add(HttpMethod.GET, uri, null, TYPE_MAP, uriVariables);
+    }
+
+    public BatchResult<Map<String, ?>> getSObject(String type, String id, String... fields) {
+        String uri = SFRestClient.BASE_URI_REST + "/sobjects/{type}/{id}";
+
+        if (fields.length > 0) {
+            uri += "?fields=" + StringUtils.arrayToCommaDelimitedString(fields);
+        }
+
+        return getMap(uri, type, id);
+    }
+
+    /**
+     * @see SFRestClient#getSObject(Class, String)
+     */
+    public <T> BatchResult<T> getSObject(final Class<T> type, String id) {
+        final RecordBinder binder = client.getRecordBinder();
+
+        if (!binder.isFlat(type)) {
+            Query query = client.createQuery(type, SFRestClient.whereId(id));
+            return add(HttpMethod.GET, queryUri(query), null, new ResultConverter<T>() {
+                @Override
+                public T convert(Object result) {
+                    List<T> records = toQueryResult(null, result, type).getRecords();
+                    if (records.isEmpty()) {
+                        throw new SFException("NOT_FOUND", "The requested resource does not exist");
+                    }
+
+                    return records.get(0);
+                }
+            });
+        }
+
+        String uri = SFRestClient.BASE_URI_REST + "/sobjects/{type}/{id}?fields=" + StringUtils.collectionToCommaDelimitedString(binder.fields(type));
+        return add(HttpMethod.GET, uri, null, new ResultConverter<T>() {
+            @Override
+            public T convert(Object result) {
+                return binder.getObjectMapper().convertValue(result, type);
+            }
+        }, RecordBinder.sObjectType(type), id);
+    }
+
+    /**
+     * Fetches next page of the query, see {@link SFRestClient#query(Query)}.
+     */
+    public BatchResult<QueryResult<Map<String, ?>>> query(final Query query) {
+        return add(HttpMethod.GET, queryUri(query), null, new ResultConverter<QueryResult<Map<String, ?>>>() {
+            @Override
+            public QueryResult<Map<String, ?>> convert(Object result) {
+                return toQueryResult(query, result, null);
+            }
+        });
+    }
+
+    /**
+     * Fetches next page of the query, see {@link SFRestClient#query(Query, Class)}.
+     */
+    public <T> BatchResult<QueryResult<T>> query(final Query query, final Class<T> type) {
+        return add(HttpMethod.GET, queryUri(query), null, new ResultConverter<QueryResult<T>>() {
+            @Override
+            public QueryResult<T> convert(Object result) {
+                return toQueryResult(query, result, type);
+            }
+        });
+    }
+
+    /**
+     * Sends all collected requests, then results are available from the {@link BatchResult}s.
+     * <p>
+     * If a round trip fails, its requests and those of later round trips fail with that error, which is then thrown.
+     * The requests are removed either way, so executing again never sends them twice.
+     * </p>
+     */
+    public void execute() {
+        int from = 0;
+        try {
+            boolean halted = false;
+            for (; from < items.size(); from += MAX_SUBREQUESTS) {
+                List<Item<?>> chunk = items.subList(from, Math.min(items.size(), from + MAX_SUBREQUESTS));
+
+                if (halted) {
+                    for (Item<?> item : chunk) {
+                        item.result.fail(412, new SFException("BATCH_PROCESSING_HALTED", "Batch processing halted due to an earlier error"));
+                    }
+                } else {
+                    halted = !executeChunk(chunk) && haltOnError;
+                }
+            }
+        } catch (RuntimeException e) {
+            SFException error = e instanceof SFException ? (SFException) e : new SFException("Batch request failed", e);
+            for (Item<?> item : items.subList(from, items.size())) {
+                if (!item.result.isCompleted()) {
+                    item.result.fail(0, error);
+                }
+            }
+            throw e;
+        } finally {
+            items.clear();
+        }
+    }
+
+    /**
+     * Returns false if the chunk has errors.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean executeChunk(List<Item<?>> chunk) {
+        List<Map<String, Object>> batchRequests = new ArrayList<>();
+        for (Item<?> item : chunk) {
+            Map<String, Object> subrequest = new LinkedHashMap<>();
+            subrequest.put("method", item.method.name());
+            subrequest.put("url", item.url);
+            if (item.body != null) {
+                subrequest.put("richInput", item.body);
+            }
+            batchRequests.add(subrequest);
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("batchRequests", batchRequests);
+        body.put("haltOnError", haltOnError);
+
+        Map<String, ?> response = client.getMap(BASE_URI_BATCH + "/composite/batch", HttpMethod.POST, body);
+        List<Map<String, ?>> results = (List<Map<String, ?>>) response.get("results");
+        if (results == null || results.size() != chunk.size()) {
+            throw new SFException("Unexpected batch response, expected " + chunk.size() + " results: " + response);
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            Map<String, ?> result = results.get(i);
+            chunk.get(i).complete((Integer) result.get("statusCode"), result.get("result"));
+        }
+
+        return !Boolean.TRUE.equals(response.get("hasErrors"));
+    }
+
+    private <T> BatchResult<T> add(HttpMethod method, String uri, Object requestBody, ResultConverter<T> converter, Object... uriVariables) {
+        Matcher matcher = REST_URI_PATTERN.matcher(uri);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Only REST API resources can be batched: " + uri);
+        }
+
+        String url = new UriTemplate(BASE_URI_BATCH + matcher.group(1)).expand(uriVariables).toString();
+
+        Item<T> item = new Item<>(method, url, requestBody, converter);
+        items.add(item);
+
+        return item.result;
+    }
+
+    private static String queryUri(Query query) {
+        return query.getNextUri() != null ? query.getNextUri() : SFRestClient.BASE_URI_REST + "/query/?q=" + query.getSoql();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> QueryResult<T> toQueryResult(Query query, Object result, Class<T> type) {
+        Map<String, ?> ret = (Map<String, ?>) result;
+
+        QueryResult<T> qResult = new QueryResult<>();
+        qResult.setTotalSize((Integer) ret.get("totalSize"));
+        qResult.setDone((Boolean) ret.get("done"));
+
+        Object records = ret.get("records");
+        if (type == null) {
+            qResult.setRecords((List<T>) records);
+        } else {
+            ObjectMapper binderMapper = client.getRecordBinder().getObjectMapper();
+            qResult.setRecords(binderMapper.<List<T>>convertValue(records, binderMapper.getTypeFactory().constructCollectionType(List.class, type)));
+        }
+
+        if (query != null) {
+            query.setNextUri(!qResult.isDone() ? (String) ret.get("nextRecordsUrl") : null);
+            qResult.setQuery(query);
+        }
+
+        return qResult;
+    }
+
+    private interface ResultConverter<T> {
+
+        T convert(Object result);
+    }
+
+    private class Item<T> {
+
+        private final HttpMethod method;
+        private final String url;
+        private final Object body;
+        private final ResultConverter<T> converter;
+        private final BatchResult<T> result = new BatchResult<>();
+
+        Item(HttpMethod method, String url, Object body, ResultConverter<T> converter) {
+            this.method = method;
+            this.url = url;
+            this.body = body;
+            this.converter = converter;
+        }
+
+        void complete(int statusCode, Object response) {
+            if (statusCode < 300) {
+                try {
+                    result.complete(statusCode, converter.convert(response));
+                } catch (SFException e) {
+                    result.fail(statusCode, e);
+                } catch (RuntimeException e) {
+                    result.fail(statusCode, new SFException("Failed to read batch result of " + url, e));
+                }
+                return;
+            }
+
+            String content;
+            try {
+                content = mapper.writeValueAsString(response);
+            } catch (JsonProcessingException e) {
+                content = String.valueOf(response);
+            }
+
+            SFException error = SFRestTemplate.translateError(response, content);
+            if (error == null) {
+                error = new SFException(String.valueOf(statusCode), "Batch subrequest failed with status " + statusCode, content);
+            }
+            result.fail(statusCode, error);
+        }
+    }
+}
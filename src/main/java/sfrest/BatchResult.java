@@ -0,0 +1,54 @@
+package sfrest;
+
+/**
+ * Result of a single subrequest of a {@link BatchRequest}, available after the batch is executed.
+ */
+public class BatchResult<T> {
+
+    private boolean completed;
+    private int statusCode;
+    private T value;
+    private SFException error;
+
+    /**
+     * Returns the subrequest result, or throws the exception translated from its error response.
+     */
+    public T get() {
+        if (!completed) {
+            throw new IllegalStateException("Batch not executed yet");
+        }
+        if (error != null) {
+            throw error;
+        }
+
+        return value;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public boolean isSuccess() {
+        return completed && error == null;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public SFException getError() {
+        return error;
+    }
+
+    void complete(int statusCode, T value) {
+        this.completed = true;
+        this.statusCode = statusCode;
+        this.value = value;
+    }
+
+    void fail(int statusCode, SFException error) {
+        this.completed = true;
+        this.statusCode = statusCode;
+        this.error = error;
+    }
+}
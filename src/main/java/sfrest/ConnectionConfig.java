@@ -0,0 +1,167 @@
+package sfrest;
+
+import org.springframework.core.style.ToStringCreator;
+
+/**
+ * Connection pool settings of {@link SFRestClient}, requires Apache HttpClient 4.3+ on the classpath.
+ * <p>
+ * All durations are in milliseconds, non-positive values mean no limit unless noted otherwise.
+ * </p>
+ *
+ * @see HttpClientConnectionPool
+ */
+public class ConnectionConfig {
+
+    private int maxTotal = 50;
+    private int maxPerRoute = 20;
+    private int connectTimeout = 10000;
+    private int socketTimeout = 120000;
+    private int connectionRequestTimeout = 30000;
+    private long keepAlive = 60000;
+    private long timeToLive = -1;
+    private long idleTimeout = 30000;
+    private long evictionInterval = 10000;
+    private int tlsSessionCacheSize = 100;
+    private int tlsSessionTimeout = 86400000;
+    private boolean contentCompression = true;
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * Max connections of the pool.
+     */
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    /**
+     * Max connections to a single host, e.g. the instance or the login server.
+     */
+    public void setMaxPerRoute(int maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public void setSocketTimeout(int socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    /**
+     * How long a request waits for a connection from the pool when all are leased.
+     */
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    public long getKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * How long an idle connection is kept when the server doesn't send {@code Keep-Alive} timeout.
+     */
+    public void setKeepAlive(long keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Max lifetime of a connection, regardless of its activity.
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Connections idle for longer than this are closed by the eviction task.
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    /**
+     * How often to close expired and idle connections, non-positive disables the eviction task.
+     */
+    public void setEvictionInterval(long evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    /**
+     * Number of TLS sessions cached for resumption, so new connections can skip the full handshake.
+     */
+    public void setTlsSessionCacheSize(int tlsSessionCacheSize) {
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+    }
+
+    public int getTlsSessionTimeout() {
+        return tlsSessionTimeout;
+    }
+
+    public void setTlsSessionTimeout(int tlsSessionTimeout) {
+        this.tlsSessionTimeout = tlsSessionTimeout;
+    }
+
+    public boolean isContentCompression() {
+        return contentCompression;
+    }
+
+    /**
+     * Whether HttpClient asks for and transparently decompresses gzip responses, enabled by default.
+     * Disable it when using {@link GzipCompression}, so that compression savings can be measured.
+     */
+    public void setContentCompression(boolean contentCompression) {
+        this.contentCompression = contentCompression;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringCreator(this)
+                .append("maxTotal", maxTotal)
+                .append("maxPerRoute", maxPerRoute)
+                .append("connectTimeout", connectTimeout)
+                .append("socketTimeout", socketTimeout)
+                .append("connectionRequestTimeout", connectionRequestTimeout)
+                .append("keepAlive", keepAlive)
+                .append("timeToLive", timeToLive)
+                .append("idleTimeout", idleTimeout)
+                .append("evictionInterval", evictionInterval)
+                .append("contentCompression", contentCompression)
+                .toString();
+    }
+}
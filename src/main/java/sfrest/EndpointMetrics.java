@@ -0,0 +1,186 @@
+package sfrest;
+
+import org.springframework.http.HttpMethod;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-memory {@link MetricsListener} keeping latency histograms and counters per endpoint and method.
+ * <p>
+ * Next query pages are kept under {@code /query/{locator}}, separately from the first page under {@code /query},
+ * and token acquisition has its own histogram. Once an endpoint and method have been seen, recording doesn't allocate.
+ * </p>
+ * <p>
+ * Paths with business keys, e.g. of Apex REST resources, make an endpoint per key. Past the max number of endpoints,
+ * new ones are recorded under {@value #OTHER_ENDPOINTS}, so memory stays bounded.
+ * </p>
+ */
+public class EndpointMetrics implements MetricsListener {
+
+    public static final String OTHER_ENDPOINTS = "{other}";
+
+    private static final int METHODS = HttpMethod.values().length;
+
+    private final ConcurrentMap<String, AtomicReferenceArray<Stats>> endpoints = new ConcurrentHashMap<>();
+    private final LatencyHistogram tokenAcquisition = new LatencyHistogram();
+    private volatile int maxEndpoints = 500;
+
+    @Override
+    public void requestCompleted(HttpMethod method, String endpoint, int statusCode, String errorCode, long durationNanos, long requestBytes, long responseBytes) {
+        stats(method, endpoint).record(statusCode, errorCode, durationNanos, requestBytes, responseBytes);
+    }
+
+    @Override
+    public void bodyCompressed(HttpMethod method, String endpoint, long originalBytes, long compressedBytes) {
+        stats(method, endpoint).recordCompression(originalBytes, compressedBytes);
+    }
+
+    @Override
+    public void tokenAcquired(long durationNanos) {
+        tokenAcquisition.record(durationNanos);
+    }
+
+    public int getMaxEndpoints() {
+        return maxEndpoints;
+    }
+
+    /**
+     * Max number of endpoints recorded separately, defaults to 500.
+     */
+    public void setMaxEndpoints(int maxEndpoints) {
+        this.maxEndpoints = maxEndpoints;
+    }
+
+    public Set<String> getEndpoints() {
+        return Collections.unmodifiableSet(endpoints.keySet());
+    }
+
+    /**
+     * Stats of the endpoint for given method, null if no such request has been recorded.
+     */
+    public Stats get(HttpMethod method, String endpoint) {
+        AtomicReferenceArray<Stats> methods = endpoints.get(endpoint);
+        Stats stats = methods != null ? methods.get(method.ordinal()) : null;
+        return stats == null || stats.getRequestCount() == 0 ? null : stats;
+    }
+
+    public LatencyHistogram getTokenAcquisition() {
+        return tokenAcquisition;
+    }
+
+    private Stats stats(HttpMethod method, String endpoint) {
+        AtomicReferenceArray<Stats> methods = endpoints.get(endpoint);
+        if (methods == null) {
+            if (endpoints.size() >= maxEndpoints) {
+                endpoint = OTHER_ENDPOINTS;
+            }
+
+            AtomicReferenceArray<Stats> newMethods = new AtomicReferenceArray<>(METHODS);
+            methods = endpoints.putIfAbsent(endpoint, newMethods);
+            if (methods == null) {
+                methods = newMethods;
+            }
+        }
+
+        Stats stats = methods.get(method.ordinal());
+        if (stats == null) {
+            methods.compareAndSet(method.ordinal(), null, new Stats());
+            stats = methods.get(method.ordinal());
+        }
+
+        return stats;
+    }
+
+    public static class Stats {
+
+        private static final int MAX_STATUS = 600;
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong requestBytes = new AtomicLong();
+        private final AtomicLong responseBytes = new AtomicLong();
+        private final AtomicLong uncompressedBytes = new AtomicLong();
+        private final AtomicLong compressedBytes = new AtomicLong();
+        private final AtomicLongArray statusCounts = new AtomicLongArray(MAX_STATUS);
+        private final ConcurrentMap<String, AtomicLong> errorCounts = new ConcurrentHashMap<>();
+
+        void record(int statusCode, String errorCode, long durationNanos, long requestBytes, long responseBytes) {
+            latency.record(durationNanos);
+            this.requestBytes.addAndGet(requestBytes);
+            this.responseBytes.addAndGet(responseBytes);
+            statusCounts.incrementAndGet(statusCode >= 0 && statusCode < MAX_STATUS ? statusCode : 0);
+
+            if (errorCode != null) {
+                AtomicLong count = errorCounts.get(errorCode);
+                if (count == null) {
+                    AtomicLong newCount = new AtomicLong();
+                    count = errorCounts.putIfAbsent(errorCode, newCount);
+                    if (count == null) {
+                        count = newCount;
+                    }
+                }
+                count.incrementAndGet();
+            }
+        }
+
+        void recordCompression(long originalBytes, long compressedBytes) {
+            this.uncompressedBytes.addAndGet(originalBytes);
+            this.compressedBytes.addAndGet(compressedBytes);
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getRequestCount() {
+            return latency.getCount();
+        }
+
+        public long getRequestBytes() {
+            return requestBytes.get();
+        }
+
+        public long getResponseBytes() {
+            return responseBytes.get();
+        }
+
+        /**
+         * Uncompressed size of the request and response bodies that were compressed on the wire.
+         */
+        public long getUncompressedBytes() {
+            return uncompressedBytes.get();
+        }
+
+        /**
+         * Wire size of the request and response bodies that were compressed.
+         */
+        public long getCompressedBytes() {
+            return compressedBytes.get();
+        }
+
+        /**
+         * Number of responses with given status, 0 counts requests that got no response.
+         */
+        public long getStatusCount(int statusCode) {
+            return statusCode >= 0 && statusCode < MAX_STATUS ? statusCounts.get(statusCode) : 0;
+        }
+
+        /**
+         * Number of failures by salesforce error code or exception name.
+         */
+        public Map<String, Long> getErrorCounts() {
+            Map<String, Long> counts = new TreeMap<>();
+            for (Map.Entry<String, AtomicLong> entry : errorCounts.entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().get());
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package sfrest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression of request and response bodies.
+ * <p>
+ * Requests are sent with {@code Accept-Encoding: gzip}, and gzip responses are decompressed while they are read,
+ * without buffering. Request bodies from the min request size on are compressed and sent with
+ * {@code Content-Encoding: gzip}.
+ * </p>
+ * <p>
+ * With Apache HttpClient, responses are already decompressed by HttpClient itself unless
+ * {@link ConnectionConfig#setContentCompression(boolean) content compression} is disabled, in which case
+ * savings are not reported to the client's {@link MetricsListener}.
+ * </p>
+ *
+ * @see SFRestClient#setGzipCompression(GzipCompression)
+ */
+public class GzipCompression implements ClientHttpRequestInterceptor {
+
+    private static final String GZIP = "gzip";
+
+    private int minRequestSize = 1024;
+    private volatile MetricsListener metricsListener;
+
+    public int getMinRequestSize() {
+        return minRequestSize;
+    }
+
+    /**
+     * Request bodies smaller than this are sent uncompressed, defaults to 1 KB; negative to never compress requests.
+     */
+    public void setMinRequestSize(int minRequestSize) {
+        this.minRequestSize = minRequestSize;
+    }
+
+    void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        HttpHeaders headers = request.getHeaders();
+        if (!headers.containsKey("Accept-Encoding")) {
+            headers.set("Accept-Encoding", GZIP);
+        }
+
+        if (minRequestSize >= 0 && body.length >= minRequestSize && body.length > 0 && !headers.containsKey("Content-Encoding")) {
+            byte[] compressed = compress(body);
+            headers.set("Content-Encoding", GZIP);
+            headers.setContentLength(compressed.length);
+            report(request, body.length, compressed.length);
+            body = compressed;
+        }
+
+        ClientHttpResponse response = execution.execute(request, body);
+        if (!GZIP.equalsIgnoreCase(response.getHeaders().getFirst("Content-Encoding"))) {
+            return response;
+        }
+
+        return new DecompressingResponse(request, response);
+    }
+
+    private void report(HttpRequest request, long originalBytes, long compressedBytes) {
+        MetricsListener listener = metricsListener;
+        if (listener != null) {
+            listener.bodyCompressed(request.getMethod(), MetricsInterceptor.normalize(request.getURI().getRawPath()), originalBytes, compressedBytes);
+        }
+    }
+
+    private static byte[] compress(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private class DecompressingResponse extends AbstractClientHttpResponse {
+
+        private final HttpRequest request;
+        private final ClientHttpResponse response;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        private CountingInputStream compressed;
+        private CountingInputStream decompressed;
+
+        DecompressingResponse(HttpRequest request, ClientHttpResponse response) {
+            this.request = request;
+            this.response = response;
+
+            // The decompressed body has neither the encoding nor the length of the compressed one.
+            headers.putAll(response.getHeaders());
+            headers.remove("Content-Encoding");
+            headers.remove("Content-Length");
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (decompressed == null) {
+                compressed = new CountingInputStream(response.getBody());
+
+                // Responses without content, e.g. 204 or 304, may still be labeled as gzip.
+                PushbackInputStream in = new PushbackInputStream(compressed);
+                int first = in.read();
+                if (first == -1) {
+                    decompressed = new CountingInputStream(new ByteArrayInputStream(new byte[0]));
+                } else {
+                    in.unread(first);
+                    decompressed = new CountingInputStream(new GZIPInputStream(in, 8192));
+                }
+            }
+
+            return decompressed;
+        }
+
+        @Override
+        public void close() {
+            response.close();
+
+            if (decompressed != null && compressed.count > 0) {
+                report(request, decompressed.count, compressed.count);
+                decompressed = null;
+            }
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package sfrest;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLContexts;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.net.ssl.SSLContext;
+import java.net.URI;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pooled Apache HttpClient built from a {@link ConnectionConfig}, with idle connection eviction and pool statistics.
+ * <p>
+ * Only usable when Apache HttpClient 4.3+ is on the classpath.
+ * </p>
+ */
+public class HttpClientConnectionPool implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientConnectionPool.class);
+
+    private final ConnectionConfig config;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final HttpComponentsClientHttpRequestFactory requestFactory;
+    private ScheduledExecutorService evictor;
+
+    public HttpClientConnectionPool(ConnectionConfig config) {
+        this.config = config;
+
+        SSLContext sslContext = SSLContexts.createDefault();
+        sslContext.getClientSessionContext().setSessionCacheSize(config.getTlsSessionCacheSize());
+        sslContext.getClientSessionContext().setSessionTimeout(config.getTlsSessionTimeout() / 1000);
+
+        Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", new SSLConnectionSocketFactory(sslContext, SSLConnectionSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER))
+                .build();
+
+        connectionManager = new PoolingHttpClientConnectionManager(socketFactories, null, null, null,
+                config.getTimeToLive(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(config.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSocketTimeout(config.getSocketTimeout())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeout())
+                .build();
+
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(new DefaultKeepAliveStrategy(config.getKeepAlive()))
+                .disableConnectionState() // Connections are not bound to a user, any request can reuse them.
+                .useSystemProperties();
+        if (!config.isContentCompression()) {
+            builder.disableContentCompression();
+        }
+        httpClient = builder.build();
+
+        requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+
+        if (config.getEvictionInterval() > 0) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sfrest-evictor-");
+            threadFactory.setDaemon(true);
+
+            evictor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            evictor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    evictConnections();
+                }
+            }, config.getEvictionInterval(), config.getEvictionInterval(), TimeUnit.MILLISECONDS);
+        }
+
+        logger.debug("Connection pool created: {}", config);
+    }
+
+    public ConnectionConfig getConfig() {
+        return config;
+    }
+
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public HttpComponentsClientHttpRequestFactory getRequestFactory() {
+        return requestFactory;
+    }
+
+    /**
+     * Leased, available and pending connections of the whole pool.
+     */
+    public PoolStats getTotalStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Leased, available and pending connections to the host of given url, e.g. the instance url.
+     */
+    public PoolStats getStats(String url) {
+        return connectionManager.getStats(route(url));
+    }
+
+    /**
+     * Overrides max connections to the host of given url.
+     */
+    public void setMaxPerRoute(String url, int max) {
+        connectionManager.setMaxPerRoute(route(url), max);
+    }
+
+    /**
+     * Closes expired connections and those idle for longer than the configured idle timeout.
+     */
+    public void evictConnections() {
+        connectionManager.closeExpiredConnections();
+        if (config.getIdleTimeout() > 0) {
+            connectionManager.closeIdleConnections(config.getIdleTimeout(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        httpClient.close();
+        connectionManager.shutdown();
+    }
+
+    private static HttpRoute route(String url) {
+        URI uri = URI.create(url);
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+
+        return new HttpRoute(new HttpHost(uri.getHost(), port, uri.getScheme()), null, secure);
+    }
+
+    /**
+     * Honours the server {@code Keep-Alive} header, falls back to the configured keep alive otherwise.
+     */
+    private static class DefaultKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+        private final long keepAlive;
+
+        DefaultKeepAliveStrategy(long keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? duration : keepAlive;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package sfrest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.util.UriTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches describe results of {@link SFRestClient#listSObjects()} and {@link SFRestClient#getSObjectMetadata(String, boolean)}.
+ * <p>
+ * Entries are keyed by instance url and resource uri (which includes the API version), and evicted in LRU order
+ * when the cache is full. Entries older than the time to live are revalidated with {@code If-Modified-Since},
+ * so unchanged metadata costs a bodiless 304 response instead of a full describe.
+ * </p>
+ * <p>
+ * Cached maps are shared between callers and returned unmodifiable; nested values must not be modified either.
+ * </p>
+ *
+ * @see SFRestClient#setMetadataCache(MetadataCache)
+ */
+public class MetadataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetadataCache.class);
+
+    private static final ParameterizedTypeReference<Map<String, ?>> TYPE_MAP = new ParameterizedTypeReference<Map<String, ?>>() {
+    };
+
+    private final Map<String, Entry> entries;
+    private long timeToLive = 3600000;
+    private List<String> preloadTypes = Collections.emptyList();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong revalidationCount = new AtomicLong();
+
+    public MetadataCache() {
+        this(500);
+    }
+
+    public MetadataCache(final int maxEntries) {
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Milliseconds an entry is served without revalidation, defaults to one hour.
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public List<String> getPreloadTypes() {
+        return preloadTypes;
+    }
+
+    /**
+     * sObject types to describe in {@link #preload(SFRestClient)}.
+     */
+    public void setPreloadTypes(List<String> preloadTypes) {
+        this.preloadTypes = preloadTypes;
+    }
+
+    /**
+     * Loads global describe and describes of the preload types into the cache.
+     */
+    public void preload(SFRestClient client) {
+        client.listSObjects();
+        for (String type : preloadTypes) {
+            client.getSObjectMetadata(type, true);
+        }
+    }
+
+    /**
+     * Returns the cached resource, fetching or revalidating it through the client when needed.
+     */
+    public Map<String, ?> get(SFRestClient client, String uri, Object... uriVariables) {
+        String key = client.getToken().getInstanceUrl() + new UriTemplate(uri).expand(uriVariables);
+        long now = System.currentTimeMillis();
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+
+        if (entry != null && now - entry.fetchTime < timeToLive) {
+            hitCount.incrementAndGet();
+            return entry.value;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        if (entry != null && entry.lastModified != null) {
+            headers.set("If-Modified-Since", entry.lastModified);
+        }
+
+        ResponseEntity<Map<String, ?>> response = client.exchange(uri, HttpMethod.GET, new HttpEntity<>(headers), TYPE_MAP, uriVariables);
+        if (entry != null && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            revalidationCount.incrementAndGet();
+            logger.debug("Metadata not modified: {}", key);
+            entry = new Entry(entry.value, entry.lastModified, now);
+        } else {
+            missCount.incrementAndGet();
+            Map<String, ?> body = response.getBody();
+            entry = new Entry(body != null ? Collections.unmodifiableMap(body) : null, response.getHeaders().getFirst("Last-Modified"), now);
+        }
+
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+
+        return entry.value;
+    }
+
+    /**
+     * Removes cached describes of the sObject type, in all instances. Type names are case-insensitive.
+     */
+    public void invalidate(String type) {
+        String suffix = "/sobjects/" + type + "/describe";
+        synchronized (entries) {
+            Iterator<String> it = entries.keySet().iterator();
+            while (it.hasNext()) {
+                String key = it.next();
+                if (key.regionMatches(true, key.length() - suffix.length(), suffix, 0, suffix.length())) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public List<String> keys() {
+        synchronized (entries) {
+            return new ArrayList<>(entries.keySet());
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Number of expired entries confirmed unchanged by the server.
+     */
+    public long getRevalidationCount() {
+        return revalidationCount.get();
+    }
+
+    private static class Entry {
+
+        private final Map<String, ?> value;
+        private final String lastModified;
+        private final long fetchTime;
+
+        Entry(Map<String, ?> value, String lastModified, long fetchTime) {
+            this.value = value;
+            this.lastModified = lastModified;
+            this.fetchTime = fetchTime;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package sfrest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Measures every request and reports it to a {@link MetricsListener} when the response is closed.
+ * <p>
+ * It's the outermost interceptor, so the measured latency is the one seen by the caller, including throttling and
+ * responses served from cache.
+ * </p>
+ * <p>
+ * Each request costs the normalized endpoint string and a response wrapper, plus a counting stream if the body is read.
+ * </p>
+ */
+class MetricsInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final String REST_PREFIX = "/services/data/v";
+
+    private final MetricsListener listener;
+
+    MetricsInterceptor(MetricsListener listener) {
+        this.listener = listener;
+    }
+
+    MetricsListener getListener() {
+        return listener;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        long start = System.nanoTime();
+        String endpoint = normalize(request.getURI().getRawPath());
+
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            String errorCode = e instanceof SFException && ((SFException) e).getErrorCode() != null
+                    ? ((SFException) e).getErrorCode() : e.getClass().getSimpleName();
+            listener.requestCompleted(request.getMethod(), endpoint, 0, errorCode, System.nanoTime() - start, body.length, 0);
+            throw e;
+        }
+
+        return new MeteredResponse(response, request, endpoint, body.length, start);
+    }
+
+    /**
+     * Turns a request path into an endpoint template: the REST version prefix is removed, record ids are replaced by
+     * {@code {id}}, sObject names by {@code {type}}, external id values by {@code {value}}, and query locators by
+     * {@code {locator}}.
+     * <p>
+     * E.g. {@code /services/data/v29.0/sobjects/Account/001D000000IqhSL} becomes {@code /sobjects/{type}/{id}}, and
+     * {@code /services/data/v29.0/sobjects/Account/Ext__c/ABC-1} becomes {@code /sobjects/{type}/Ext__c/{value}}.
+     * Segments are compared in place, only the resulting endpoint string is allocated.
+     * </p>
+     */
+    static String normalize(String path) {
+        if (path == null) {
+            return "";
+        }
+
+        int from = 0;
+        int length = path.length();
+        if (path.startsWith(REST_PREFIX)) {
+            from = path.indexOf('/', REST_PREFIX.length());
+            if (from < 0) {
+                return "";
+            }
+        }
+        if (length - from > 1 && path.charAt(length - 1) == '/') {
+            length--;
+        }
+
+        StringBuilder endpoint = new StringBuilder(length - from);
+        boolean afterSObjects = false;
+        boolean afterQuery = false;
+        boolean afterType = false;
+        boolean afterField = false;
+        int start = from + 1;
+        while (start <= length) {
+            int end = path.indexOf('/', start);
+            if (end < 0 || end > length) {
+                end = length;
+            }
+
+            boolean empty = start == end;
+            boolean type = false;
+            boolean field = false;
+            endpoint.append('/');
+            if (afterSObjects && !empty) {
+                endpoint.append("{type}");
+                type = true;
+            } else if (afterQuery && !empty) {
+                endpoint.append("{locator}");
+            } else if (afterField && !empty) {
+                endpoint.append("{value}");
+            } else if (isId(path, start, end)) {
+                endpoint.append("{id}");
+            } else {
+                endpoint.append(path, start, end);
+                field = afterType && isFieldName(path, start, end);
+            }
+
+            afterSObjects = segmentEquals(path, start, end, "sobjects");
+            afterQuery = segmentEquals(path, start, end, "query") || segmentEquals(path, start, end, "queryAll");
+            afterType = type;
+            afterField = field;
+            start = end + 1;
+        }
+
+        return endpoint.toString();
+    }
+
+    private static boolean segmentEquals(String path, int start, int end, String segment) {
+        return end - start == segment.length() && path.regionMatches(start, segment, 0, segment.length());
+    }
+
+    /**
+     * Whether the segment after an sObject name is a field, as in external id paths, rather than a sub-resource such as
+     * {@code describe}: sub-resources start in lower case, standard fields in upper case.
+     */
+    private static boolean isFieldName(String path, int start, int end) {
+        return start < end && (Character.isUpperCase(path.charAt(start)) || path.regionMatches(true, end - 3, "__c", 0, 3));
+    }
+
+    private static boolean isId(String path, int start, int end) {
+        int length = end - start;
+        if (length != 15 && length != 18) {
+            return false;
+        }
+
+        boolean digit = false;
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z')) {
+                return false;
+            }
+        }
+
+        return digit;
+    }
+
+    /**
+     * Counts the body bytes read, and reports the request when closed. The error handler sets the salesforce error code.
+     */
+    class MeteredResponse extends AbstractClientHttpResponse {
+
+        private final ClientHttpResponse response;
+        private final HttpRequest request;
+        private final String endpoint;
+        private final long requestBytes;
+        private final long start;
+
+        private InputStream body;
+        private long responseBytes;
+        private String errorCode;
+        private boolean closed;
+
+        MeteredResponse(ClientHttpResponse response, HttpRequest request, String endpoint, long requestBytes, long start) {
+            this.response = response;
+            this.request = request;
+            this.endpoint = endpoint;
+            this.requestBytes = requestBytes;
+            this.start = start;
+        }
+
+        void setErrorCode(String errorCode) {
+            this.errorCode = errorCode;
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new FilterInputStream(response.getBody()) {
+                    @Override
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b != -1) {
+                            responseBytes++;
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int n = super.read(b, off, len);
+                        if (n > 0) {
+                            responseBytes += n;
+                        }
+                        return n;
+                    }
+                };
+            }
+
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            int statusCode;
+            try {
+                statusCode = response.getRawStatusCode();
+            } catch (IOException e) {
+                statusCode = 0;
+            }
+
+            response.close();
+            listener.requestCompleted(request.getMethod(), endpoint, statusCode, errorCode, System.nanoTime() - start, requestBytes, responseBytes);
+        }
+    }
+}
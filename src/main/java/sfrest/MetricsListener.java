@@ -0,0 +1,38 @@
+package sfrest;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * Receives measurements of the requests sent by a client, called in the requesting thread on every request.
+ * <p>
+ * Implementations should be thread-safe and cheap, see {@link EndpointMetrics} for an in-memory one.
+ * </p>
+ *
+ * @see SFRestClient#setMetricsListener(MetricsListener)
+ */
+public interface MetricsListener {
+
+    /**
+     * Called when a request has completed, including reading the response.
+     *
+     * @param endpoint      normalized endpoint such as {@code /sobjects/{type}/{id}} or {@code /query/{locator}} for next query pages
+     * @param statusCode    response status, or 0 if no response was received
+     * @param errorCode     salesforce error code, exception name if no response was received, otherwise null
+     * @param requestBytes  size of the request body
+     * @param responseBytes number of response body bytes read
+     */
+    void requestCompleted(HttpMethod method, String endpoint, int statusCode, String errorCode, long durationNanos, long requestBytes, long responseBytes);
+
+    /**
+     * Called when a request or response body has been sent or received gzip compressed, see {@link GzipCompression}.
+     *
+     * @param originalBytes   size of the uncompressed body
+     * @param compressedBytes size of the body on the wire
+     */
+    void bodyCompressed(HttpMethod method, String endpoint, long originalBytes, long compressedBytes);
+
+    /**
+     * Called when the client has logged in or refreshed its token, including time spent waiting for the token endpoint.
+     */
+    void tokenAcquired(long durationNanos);
+}
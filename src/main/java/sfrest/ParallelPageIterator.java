@@ -0,0 +1,245 @@
+package sfrest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Iterates records of a query, fetching the pages after the first one concurrently.
+ * <p>
+ * Next page urls have the form {@code /query/<locator>-<offset>}, so once the first page tells the total size and
+ * page size, the urls of all remaining pages are known. Up to {@code parallelism} pages are fetched at a time. In order
+ * mode, records are returned in query order; otherwise pages are returned as they arrive, which keeps all fetches busy
+ * when some pages are slow. Pages shorter than the first one are completed by following their next page url, so no
+ * records are skipped.
+ * </p>
+ * <p>
+ * If the next page url has another form, pages are fetched one by one, following the url as {@link QueryIterator} does.
+ * Call {@link #close()} when abandoning the iteration before reaching the end.
+ * </p>
+ *
+ * @see SFRestClient#parallelPageIterator(Query, int, boolean)
+ */
+public class ParallelPageIterator implements Iterator<Map<String, ?>>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelPageIterator.class);
+
+    private static final Pattern LOCATOR = Pattern.compile("(.*/query/[^/]+-)(\\d+)");
+
+    private final SFRestClient client;
+    private final Query query;
+    private final int parallelism;
+    private final boolean ordered;
+    private final Executor executor;
+
+    private final Deque<int[]> pendingSegments = new ArrayDeque<>(); // Offset ranges not yet submitted
+    private final Deque<FutureTask<List<Map<String, ?>>>> inFlight = new ArrayDeque<>();
+    private final BlockingQueue<FutureTask<List<Map<String, ?>>>> completed = new LinkedBlockingQueue<>(); // Unordered mode only
+    private String locatorUri;
+
+    private boolean started;
+    private boolean sequential;
+    private boolean finished;
+    private Iterator<Map<String, ?>> current = Collections.emptyIterator();
+    private int totalSize = -1;
+
+    public ParallelPageIterator(SFRestClient client, Query query, int parallelism, boolean ordered, Executor executor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+
+        this.client = client;
+        this.query = query;
+        this.parallelism = parallelism;
+        this.ordered = ordered;
+        this.executor = executor;
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    /**
+     * Total number of records reported by salesforce, or -1 if the first page hasn't been received yet.
+     */
+    public int getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * Whether pages are fetched one by one, because the next page url has an unknown form; false before the first page.
+     */
+    public boolean isSequential() {
+        return sequential;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (finished) {
+                return false;
+            }
+
+            try {
+                if (!started) {
+                    start();
+                } else if (sequential) {
+                    if (query.getNextUri() == null) {
+                        finished = true;
+                    } else {
+                        current = client.query(query).getRecords().iterator();
+                    }
+                } else if (inFlight.isEmpty()) {
+                    query.setNextUri(null);
+                    finished = true;
+                } else {
+                    current = takePage().iterator();
+                    submitSegments();
+                }
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public Map<String, ?> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        pendingSegments.clear();
+        for (FutureTask<?> task : inFlight) {
+            task.cancel(false);
+        }
+        inFlight.clear();
+        completed.clear();
+    }
+
+    private void start() {
+        started = true;
+
+        QueryResult<Map<String, ?>> qResult = client.query(query);
+        totalSize = qResult.getTotalSize();
+        current = qResult.getRecords().iterator();
+
+        String nextUri = query.getNextUri();
+        if (nextUri == null) {
+            finished = true;
+            return;
+        }
+
+        Matcher matcher = LOCATOR.matcher(nextUri);
+        int pageSize = qResult.getRecords().size();
+        if (parallelism == 1 || pageSize == 0 || !matcher.matches()) {
+            logger.debug("Fetching pages sequentially, next page url: {}", nextUri);
+            sequential = true;
+            return;
+        }
+
+        locatorUri = matcher.group(1);
+        for (int offset = Integer.parseInt(matcher.group(2)); offset < totalSize; offset += pageSize) {
+            pendingSegments.add(new int[]{offset, Math.min(offset + pageSize, totalSize)});
+        }
+        logger.debug("Fetching {} pages of {} records, {} at a time", pendingSegments.size(), pageSize, parallelism);
+
+        submitSegments();
+    }
+
+    private void submitSegments() {
+        while (inFlight.size() < parallelism && !pendingSegments.isEmpty()) {
+            final int[] segment = pendingSegments.poll();
+            FutureTask<List<Map<String, ?>>> task = new FutureTask<List<Map<String, ?>>>(new Callable<List<Map<String, ?>>>() {
+                @Override
+                public List<Map<String, ?>> call() {
+                    return fetchSegment(segment[0], segment[1]);
+                }
+            }) {
+                @Override
+                protected void done() {
+                    if (!ordered) {
+                        completed.add(this); // In order mode pages are taken from inFlight, nothing would drain this.
+                    }
+                }
+            };
+
+            inFlight.add(task);
+            executor.execute(task);
+        }
+    }
+
+    private List<Map<String, ?>> takePage() {
+        FutureTask<List<Map<String, ?>>> task;
+        try {
+            task = ordered ? inFlight.poll() : completed.take();
+            if (!ordered) {
+                inFlight.remove(task);
+            }
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SFException("Interrupted while waiting for query page", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SFException("Query page fetch failed", e.getCause());
+        }
+    }
+
+    /**
+     * Fetches records from {@code start} up to {@code end}, following next page urls if pages are shorter.
+     */
+    private List<Map<String, ?>> fetchSegment(int start, int end) {
+        Query pageQuery = new Query(query.getSoql());
+        pageQuery.setBatchSize(query.getBatchSize());
+        pageQuery.setNextUri(locatorUri + start);
+
+        List<Map<String, ?>> records = new ArrayList<>(end - start);
+        int offset = start;
+        while (offset < end) {
+            QueryResult<Map<String, ?>> qResult = client.query(pageQuery);
+            List<Map<String, ?>> page = qResult.getRecords();
+            int take = Math.min(page.size(), end - offset);
+            records.addAll(page.subList(0, take));
+            offset += take;
+
+            if (qResult.isDone() || take == 0) {
+                break;
+            }
+        }
+
+        return records;
+    }
+}
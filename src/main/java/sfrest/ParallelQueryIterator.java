@@ -0,0 +1,176 @@
+package sfrest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Iterates records of several chunk queries, e.g. from {@link QueryChunks}, running up to {@code parallelism} of them
+ * at a time.
+ * <p>
+ * Each worker takes the next chunk not yet started and fetches all its pages, so concurrency is bounded by the
+ * number of workers regardless of the executor. Records are returned in the order their pages arrive, pages of
+ * different chunks interleave. At most {@code parallelism} pages are buffered.
+ * </p>
+ * <p>
+ * The client's connection pool must allow as many connections per route as workers, see
+ * {@link ConnectionConfig#setMaxPerRoute(int)}. Call {@link #close()} when abandoning the iteration before reaching
+ * the end; the first failing chunk fails the whole iteration.
+ * </p>
+ *
+ * @see SFRestClient#parallelQueryIterator(List, int)
+ */
+public class ParallelQueryIterator implements Iterator<Map<String, ?>>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelQueryIterator.class);
+
+    private static final Object WORKER_DONE = new Object();
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final SFRestClient client;
+    private final List<Query> chunks;
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final BlockingQueue<Object> pages; // List of records, RuntimeException or WORKER_DONE
+    private final int workers;
+
+    private volatile boolean closed;
+    private boolean finished;
+    private int workersDone;
+    private Iterator<Map<String, ?>> current = Collections.emptyIterator();
+
+    public ParallelQueryIterator(SFRestClient client, List<Query> chunks, int parallelism, Executor executor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+
+        this.client = client;
+        this.chunks = new ArrayList<>(chunks);
+        this.workers = Math.max(Math.min(parallelism, chunks.size()), 1);
+        this.pages = new ArrayBlockingQueue<>(workers);
+
+        for (int i = 0; i < workers; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    fetchChunks();
+                }
+            });
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (finished) {
+                return false;
+            }
+
+            Object page = takePage();
+            if (page == WORKER_DONE) {
+                finished = ++workersDone == workers;
+            } else if (page instanceof RuntimeException) {
+                close();
+                throw (RuntimeException) page;
+            } else {
+                @SuppressWarnings("unchecked")
+                List<Map<String, ?>> records = (List<Map<String, ?>>) page;
+                current = records.iterator();
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public Map<String, ?> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        finished = true;
+        pages.clear();
+    }
+
+    private Object takePage() {
+        if (closed) {
+            throw new IllegalStateException("Iterator already closed");
+        }
+
+        try {
+            return pages.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new SFException("Interrupted while waiting for query page", e);
+        }
+    }
+
+    private void fetchChunks() {
+        try {
+            int chunk;
+            while ((chunk = nextChunk.getAndIncrement()) < chunks.size()) {
+                Query query = chunks.get(chunk);
+                QueryResult<Map<String, ?>> qResult;
+                do {
+                    qResult = client.query(query);
+                    logger.debug("Fetched {} records of chunk {}, done: {}", qResult.getRecords().size(), chunk, qResult.isDone());
+
+                    if (!offer(qResult.getRecords())) {
+                        return;
+                    }
+                } while (!qResult.isDone());
+            }
+
+            offer(WORKER_DONE);
+        } catch (RuntimeException e) {
+            offer(e);
+        } catch (Error e) {
+            offer(new SFException("Query chunk fetch failed", e));
+            throw e;
+        }
+    }
+
+    /**
+     * Blocks until the page is buffered or the iterator is closed, returns false in the latter case.
+     */
+    private boolean offer(Object page) {
+        try {
+            while (!closed) {
+                if (pages.offer(page, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pages.clear();
+            pages.offer(new SFException("Interrupted while fetching query chunks"));
+            return false;
+        }
+
+        logger.debug("Iterator closed, stop fetching query chunks");
+        return false;
+    }
+}
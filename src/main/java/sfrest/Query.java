@@ -8,6 +8,7 @@ public class Query implements Serializable {
 
     private String soql;
     private String nextUri;
+    private Integer batchSize;
 
     public String getSoql() {
         return soql;
@@ -21,6 +22,20 @@ public class Query implements Serializable {
         this.nextUri = nextUri;
     }
 
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Requested number of records per page, sent as {@code Sforce-Query-Options: batchSize}.
+     * <p>
+     * Salesforce treats it as a hint, valid values are 200 - 2000, and pages may still be smaller.
+     * </p>
+     */
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
     public Query(String soql) {
         this.soql = soql;
     }
@@ -30,6 +45,7 @@ public class Query implements Serializable {
         return new ToStringCreator(this)
                 .append("soql", soql)
                 .append("nextUri", nextUri)
+                .append("batchSize", batchSize)
                 .toString();
     }
 }
@@ -0,0 +1,139 @@
+package sfrest;
+
+import org.springframework.util.StringUtils;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a query into chunk queries over ranges of a field, to be run in parallel by
+ * {@link SFRestClient#parallelQueryIterator(List, int)}.
+ * <p>
+ * The chunks together select exactly the records of the original query: the first chunk is open below and the last
+ * one open above, so records outside the estimated range are still included. The query must not have its own
+ * {@code WHERE}, {@code ORDER BY} or {@code LIMIT} clauses; conditions are passed separately and combined with
+ * the chunk ranges.
+ * </p>
+ */
+public final class QueryChunks {
+
+    private static final Pattern FROM = Pattern.compile("\\bFROM\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final String ID_DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final BigInteger BASE = BigInteger.valueOf(ID_DIGITS.length());
+
+    private QueryChunks() {
+    }
+
+    /**
+     * Splits the query into chunks of equal Id ranges, between the lowest and highest Id currently matching the
+     * conditions. Ids are assigned in creation order, so chunks are even unless records were deleted unevenly.
+     *
+     * @param select     e.g. {@code SELECT Id, Name FROM Account}
+     * @param conditions SOQL conditions without {@code WHERE}, or null
+     * @return up to {@code chunks} queries, a single one if there are too few Ids to split
+     */
+    public static List<Query> byId(SFRestClient client, String select, String conditions, int chunks) {
+        Matcher from = FROM.matcher(select);
+        if (!from.find()) {
+            throw new IllegalArgumentException("No FROM clause in query: " + select);
+        }
+
+        String where = StringUtils.hasText(conditions) ? " WHERE " + conditions : "";
+        String boundsQuery = "SELECT Id FROM " + from.group(1) + where + " ORDER BY Id ";
+        String minId = firstId(client, boundsQuery + "ASC LIMIT 1");
+        String maxId = firstId(client, boundsQuery + "DESC LIMIT 1");
+        if (minId == null) {
+            return byField(select, conditions, "Id", new ArrayList<String>());
+        }
+
+        List<String> boundaries = new ArrayList<>();
+        for (String id : splitIdRange(minId, maxId, chunks)) {
+            boundaries.add("'" + id + "'");
+        }
+
+        return byField(select, conditions, "Id", boundaries);
+    }
+
+    /**
+     * Splits the query at the given boundaries of a field, e.g. {@code CreatedDate} at
+     * {@code 2020-01-01T00:00:00Z, 2021-01-01T00:00:00Z}, making one more chunk than boundaries.
+     * Records with a null value of the field fall in no chunk.
+     *
+     * @param boundaries ascending SOQL literals, quoted where SOQL needs quotes
+     */
+    public static List<Query> byField(String select, String conditions, String field, List<String> boundaries) {
+        List<Query> queries = new ArrayList<>();
+        if (boundaries.isEmpty()) {
+            queries.add(new Query(StringUtils.hasText(conditions) ? select + " WHERE " + conditions : select));
+            return queries;
+        }
+
+        String prefix = select + " WHERE " + (StringUtils.hasText(conditions) ? "(" + conditions + ") AND " : "");
+        queries.add(new Query(prefix + field + " < " + boundaries.get(0)));
+        for (int i = 1; i < boundaries.size(); i++) {
+            queries.add(new Query(prefix + field + " >= " + boundaries.get(i - 1) + " AND " + field + " < " + boundaries.get(i)));
+        }
+        queries.add(new Query(prefix + field + " >= " + boundaries.get(boundaries.size() - 1)));
+
+        return queries;
+    }
+
+    /**
+     * Returns up to {@code chunks - 1} distinct 15 character Ids splitting the range evenly, in ascending order.
+     */
+    static List<String> splitIdRange(String minId, String maxId, int chunks) {
+        if (chunks < 1) {
+            throw new IllegalArgumentException("chunks must be positive: " + chunks);
+        }
+
+        BigInteger min = decodeId(minId);
+        BigInteger range = decodeId(maxId).subtract(min);
+
+        List<String> boundaries = new ArrayList<>();
+        for (int i = 1; i < chunks; i++) {
+            BigInteger boundary = min.add(range.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(chunks)));
+            String id = encodeId(boundary);
+            if (boundary.compareTo(min) > 0 && (boundaries.isEmpty() || !boundaries.get(boundaries.size() - 1).equals(id))) {
+                boundaries.add(id);
+            }
+        }
+
+        return boundaries;
+    }
+
+    /**
+     * Decodes the case sensitive 15 character part of an Id. Digits sort as 0-9, A-Z, a-z, as they do in SOQL.
+     */
+    static BigInteger decodeId(String id) {
+        BigInteger value = BigInteger.ZERO;
+        for (int i = 0; i < 15; i++) {
+            int digit = ID_DIGITS.indexOf(id.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid id: " + id);
+            }
+            value = value.multiply(BASE).add(BigInteger.valueOf(digit));
+        }
+
+        return value;
+    }
+
+    static String encodeId(BigInteger value) {
+        char[] id = new char[15];
+        for (int i = 14; i >= 0; i--) {
+            BigInteger[] qr = value.divideAndRemainder(BASE);
+            id[i] = ID_DIGITS.charAt(qr[1].intValue());
+            value = qr[0];
+        }
+
+        return new String(id);
+    }
+
+    private static String firstId(SFRestClient client, String soql) {
+        List<Map<String, ?>> records = client.query(soql);
+        return records.isEmpty() ? null : (String) records.get(0).get("Id");
+    }
+}
@@ -0,0 +1,373 @@
+package sfrest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Writes all records of a query to a file or channel as NDJSON (one json object per line) or CSV.
+ * <p>
+ * Records are written as they are parsed from each page, so memory use doesn't depend on the size of the result.
+ * Relationship fields are flattened into dotted columns, e.g. {@code Owner.Name}; subquery results are kept as
+ * nested json, in CSV as a json string.
+ * </p>
+ * <p>
+ * Without a column projection, the columns of a CSV export are taken from the first record, so relationships that
+ * are null in the first record end up as a single column. Set the columns when that matters.
+ * </p>
+ * <p>
+ * With a checkpoint file, progress is saved after each page, and an interrupted export resumes from the last saved
+ * page, dropping records written after it. The checkpoint is deleted when the export completes. Resuming needs the
+ * query locator to still be valid on the salesforce side, otherwise the export fails with {@code INVALID_QUERY_LOCATOR}
+ * and the checkpoint must be deleted to start over.
+ * </p>
+ */
+public class QueryExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryExporter.class);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private final SFRestClient client;
+    private Format format = Format.NDJSON;
+    private List<String> columns;
+    private Path checkpointFile;
+
+    public QueryExporter(SFRestClient client) {
+        this.client = client;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Output format, defaults to NDJSON.
+     */
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Flattened field names to export, in order, e.g. {@code Id, Name, Owner.Name}; null to export all fields.
+     * Names are case sensitive, matching the field names in query responses.
+     */
+    public void setColumns(List<String> columns) {
+        this.columns = columns != null ? new ArrayList<>(columns) : null;
+    }
+
+    public Path getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * File saving the export progress after each page, null for no checkpoints.
+     */
+    public void setCheckpointFile(Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Exports the query into the file, resuming from the checkpoint if there is one, otherwise replacing the file.
+     *
+     * @return number of records in the file
+     */
+    public long export(Query query, Path file) {
+        Checkpoint checkpoint = readCheckpoint(query);
+
+        StandardOpenOption mode = checkpoint != null ? StandardOpenOption.WRITE : StandardOpenOption.TRUNCATE_EXISTING;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+            return export(query, channel, checkpoint);
+        } catch (IOException e) {
+            throw new SFException("Failed to export query to " + file, e);
+        }
+    }
+
+    /**
+     * Exports the query into the channel, which is left open.
+     * <p>
+     * When resuming from a checkpoint, a {@link SeekableByteChannel} is truncated to the checkpoint position,
+     * other channels are expected to continue where the checkpointed output ended.
+     * </p>
+     *
+     * @return number of records exported, including the ones exported before the checkpoint
+     */
+    public long export(Query query, WritableByteChannel channel) {
+        try {
+            return export(query, channel, readCheckpoint(query));
+        } catch (IOException e) {
+            throw new SFException("Failed to export query", e);
+        }
+    }
+
+    private long export(Query query, WritableByteChannel channel, Checkpoint checkpoint) throws IOException {
+        long position = checkpoint != null ? checkpoint.position : 0;
+        if (channel instanceof SeekableByteChannel) {
+            SeekableByteChannel seekable = (SeekableByteChannel) channel;
+            if (checkpoint != null) {
+                seekable.truncate(checkpoint.position);
+                seekable.position(checkpoint.position);
+            }
+            position = seekable.position();
+        }
+
+        RecordWriter writer;
+        if (checkpoint != null) {
+            logger.debug("Resuming export from {} records", checkpoint.records);
+            query.setNextUri(checkpoint.nextUri);
+            writer = new RecordWriter(channel, checkpoint.columns, position, checkpoint.records);
+        } else {
+            writer = new RecordWriter(channel, columns, position, 0);
+        }
+
+        do {
+            client.query(query, writer);
+            writer.flush();
+
+            if (query.getNextUri() != null) {
+                saveCheckpoint(query, writer);
+            }
+        } while (query.getNextUri() != null);
+
+        if (checkpointFile != null) {
+            Files.deleteIfExists(checkpointFile);
+        }
+
+        return writer.records;
+    }
+
+    private Checkpoint readCheckpoint(Query query) {
+        if (checkpointFile == null || !Files.exists(checkpointFile)) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(checkpointFile)) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new SFException("Failed to read checkpoint " + checkpointFile, e);
+        }
+
+        if (!query.getSoql().equals(properties.getProperty("soql")) || !format.name().equals(properties.getProperty("format"))) {
+            throw new IllegalStateException("Checkpoint " + checkpointFile + " belongs to another export: " + properties);
+        }
+
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.nextUri = properties.getProperty("nextUri");
+        checkpoint.records = Long.parseLong(properties.getProperty("records"));
+        checkpoint.position = Long.parseLong(properties.getProperty("position"));
+
+        String savedColumns = properties.getProperty("columns");
+        checkpoint.columns = savedColumns != null ? Arrays.asList(StringUtils.commaDelimitedListToStringArray(savedColumns)) : null;
+
+        return checkpoint;
+    }
+
+    /**
+     * Saves the checkpoint to a temporary file first, so an interruption never leaves a partial checkpoint.
+     */
+    private void saveCheckpoint(Query query, RecordWriter writer) throws IOException {
+        if (checkpointFile == null) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("soql", query.getSoql());
+        properties.setProperty("format", format.name());
+        properties.setProperty("nextUri", query.getNextUri());
+        properties.setProperty("records", Long.toString(writer.records));
+        properties.setProperty("position", Long.toString(writer.position));
+        if (writer.columns != null) {
+            properties.setProperty("columns", StringUtils.collectionToCommaDelimitedString(writer.columns));
+        }
+
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, null);
+        }
+        Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Flattens relationship fields of the record into dotted names, dropping the {@code attributes} of each level.
+     */
+    static Map<String, Object> flatten(Map<String, ?> record) {
+        Map<String, Object> flat = new LinkedHashMap<>();
+        flatten(null, record, flat);
+        return flat;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void flatten(String prefix, Map<String, ?> record, Map<String, Object> flat) {
+        for (Map.Entry<String, ?> entry : record.entrySet()) {
+            if (entry.getKey().equals("attributes")) {
+                continue;
+            }
+
+            String name = prefix != null ? prefix + "." + entry.getKey() : entry.getKey();
+            Object value = entry.getValue();
+            if (value instanceof Map && !((Map<String, ?>) value).containsKey("records")) {
+                flatten(name, (Map<String, ?>) value, flat);
+            } else {
+                flat.put(name, value);
+            }
+        }
+    }
+
+    private static class Checkpoint {
+
+        String nextUri;
+        long records;
+        long position;
+        List<String> columns;
+    }
+
+    private class RecordWriter implements RecordHandler<Map<String, ?>> {
+
+        private final OutputStream out;
+        private final ObjectWriter jsonWriter = client.getObjectMapper().writer();
+        private final StringBuilder line = new StringBuilder();
+
+        private List<String> columns;
+        private long position;
+        private long records;
+        private boolean headerWritten;
+
+        RecordWriter(WritableByteChannel channel, List<String> columns, long position, long records) {
+            this.out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            this.columns = columns;
+            this.position = position;
+            this.records = records;
+            this.headerWritten = records > 0; // Resuming after records written with the header.
+        }
+
+        @Override
+        public void handleRecord(Map<String, ?> record) {
+            Map<String, Object> flat = flatten(record);
+
+            try {
+                if (format == Format.CSV) {
+                    if (columns == null) {
+                        columns = Collections.unmodifiableList(new ArrayList<>(flat.keySet()));
+                    }
+                    if (!headerWritten) {
+                        writeHeader();
+                        headerWritten = true;
+                    }
+                    writeCsv(flat);
+                } else {
+                    writeJson(flat);
+                }
+            } catch (IOException e) {
+                throw new SFException("Failed to write record", e);
+            }
+
+            records++;
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+
+        private void writeJson(Map<String, Object> flat) throws IOException {
+            Object value = flat;
+            if (columns != null) {
+                Map<String, Object> projected = new LinkedHashMap<>();
+                for (String column : columns) {
+                    projected.put(column, flat.get(column));
+                }
+                value = projected;
+            }
+
+            byte[] json = jsonWriter.writeValueAsBytes(value);
+            write(json);
+            write(new byte[]{'\n'});
+        }
+
+        private void writeHeader() throws IOException {
+            line.setLength(0);
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                appendCsv(line, columns.get(i));
+            }
+            write(line.append('\n').toString().getBytes(UTF_8));
+        }
+
+        private void writeCsv(Map<String, Object> flat) throws IOException {
+            line.setLength(0);
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                appendCsv(line, csvValue(flat.get(columns.get(i))));
+            }
+            write(line.append('\n').toString().getBytes(UTF_8));
+        }
+
+        private String csvValue(Object value) throws JsonProcessingException {
+            if (value == null) {
+                return "";
+            } else if (value instanceof Map || value instanceof List) {
+                return jsonWriter.writeValueAsString(value);
+            } else if (value instanceof Double) {
+                return BigDecimal.valueOf((Double) value).toPlainString(); // Avoids exponents of large amounts.
+            }
+
+            return value.toString();
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            out.write(bytes);
+            position += bytes.length;
+        }
+    }
+
+    private static void appendCsv(StringBuilder line, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (quote) {
+            line.append('"').append(value.replace("\"", "\"\"")).append('"');
+        } else {
+            line.append(value);
+        }
+    }
+}
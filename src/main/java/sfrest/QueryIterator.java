@@ -0,0 +1,173 @@
+package sfrest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterates records of a query across all pages, while next pages are fetched in the background.
+ * <p>
+ * At most {@code prefetch} pages are buffered, the background fetching stops when the buffer is full
+ * and resumes when the consumer catches up. Exceptions thrown by page requests are rethrown
+ * from {@link #hasNext()} in the consuming thread.
+ * </p>
+ * <p>
+ * Call {@link #close()} when abandoning the iteration before reaching the end.
+ * </p>
+ *
+ * @see SFRestClient#queryIterator(Query, int)
+ */
+public class QueryIterator implements Iterator<Map<String, ?>>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryIterator.class);
+
+    private static final Object END = new Object();
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final SFRestClient client;
+    private final Query query;
+    private final BlockingQueue<Object> pages; // QueryResult, RuntimeException or END
+
+    private volatile boolean closed;
+    private boolean finished;
+    private Iterator<Map<String, ?>> current = Collections.emptyIterator();
+    private int totalSize = -1;
+
+    public QueryIterator(SFRestClient client, Query query, int prefetch, Executor executor) {
+        if (prefetch < 1) {
+            throw new IllegalArgumentException("prefetch must be positive: " + prefetch);
+        }
+
+        this.client = client;
+        this.query = query;
+        this.pages = new ArrayBlockingQueue<>(prefetch);
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                fetchPages();
+            }
+        });
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    /**
+     * Total number of records reported by salesforce, or -1 if the first page hasn't been received yet.
+     */
+    public int getTotalSize() {
+        return totalSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (finished) {
+                return false;
+            }
+
+            Object page = takePage();
+            if (page == END) {
+                finished = true;
+            } else if (page instanceof RuntimeException) {
+                finished = true;
+                throw (RuntimeException) page;
+            } else {
+                @SuppressWarnings("unchecked")
+                QueryResult<Map<String, ?>> qResult = (QueryResult<Map<String, ?>>) page;
+                totalSize = qResult.getTotalSize();
+                current = qResult.getRecords().iterator();
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public Map<String, ?> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        finished = true;
+        pages.clear();
+    }
+
+    private Object takePage() {
+        if (closed) {
+            throw new IllegalStateException("Iterator already closed");
+        }
+
+        try {
+            return pages.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new SFException("Interrupted while waiting for query page", e);
+        }
+    }
+
+    private void fetchPages() {
+        try {
+            QueryResult<Map<String, ?>> qResult;
+            do {
+                qResult = client.query(query);
+                logger.debug("Fetched {} records, done: {}", qResult.getRecords().size(), qResult.isDone());
+
+                if (!offer(qResult)) {
+                    return;
+                }
+            } while (!qResult.isDone());
+
+            offer(END);
+        } catch (RuntimeException e) {
+            offer(e);
+        } catch (Error e) {
+            offer(new SFException("Query page fetch failed", e));
+            throw e;
+        }
+    }
+
+    /**
+     * Blocks until the page is buffered or the iterator is closed, returns false in the latter case.
+     */
+    private boolean offer(Object page) {
+        try {
+            while (!closed) {
+                if (pages.offer(page, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pages.clear();
+            pages.offer(new SFException("Interrupted while fetching query pages"));
+            return false;
+        }
+
+        logger.debug("Iterator closed, stop fetching query pages");
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+package sfrest;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseExtractor;
+
+import java.io.IOException;
+
+/**
+ * Parses a query response with a streaming parser, handing records to a {@link RecordHandler} one at a time.
+ * <p>
+ * Only the envelope ({@code totalSize}, {@code done} and {@code nextRecordsUrl}) is kept, so memory use doesn't
+ * grow with the page size.
+ * </p>
+ */
+class QueryResponseExtractor<T> implements ResponseExtractor<QueryResult<T>> {
+
+    private final ObjectReader recordReader;
+    private final RecordHandler<T> handler;
+    private String nextRecordsUrl;
+
+    QueryResponseExtractor(ObjectReader recordReader, RecordHandler<T> handler) {
+        this.recordReader = recordReader;
+        this.handler = handler;
+    }
+
+    String getNextRecordsUrl() {
+        return nextRecordsUrl;
+    }
+
+    @Override
+    public QueryResult<T> extractData(ClientHttpResponse response) throws IOException {
+        QueryResult<T> qResult = new QueryResult<>();
+        nextRecordsUrl = null;
+
+        try (JsonParser parser = recordReader.getFactory().createParser(response.getBody())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new SFException("Unexpected query response, expecting json object but got " + parser.getCurrentToken());
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+
+                switch (field) {
+                    case "totalSize":
+                        qResult.setTotalSize(parser.getIntValue());
+                        break;
+                    case "done":
+                        qResult.setDone(parser.getBooleanValue());
+                        break;
+                    case "nextRecordsUrl":
+                        nextRecordsUrl = parser.getText();
+                        break;
+                    case "records":
+                        if (value == JsonToken.START_ARRAY) {
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                T record = recordReader.readValue(parser);
+                                handler.handleRecord(record);
+                            }
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+
+        return qResult;
+    }
+}
@@ -1,13 +1,17 @@
 package sfrest;
 
 import java.util.List;
-import java.util.Map;
 
-public class QueryResult {
+/**
+ * A page of query result, records are maps unless the query is bound to a class.
+ *
+ * @see SFRestClient#query(Query, Class)
+ */
+public class QueryResult<T> {
 
     private int totalSize;
     private boolean done;
-    private List<Map<String, ?>> records;
+    private List<T> records;
     private Query query;
 
     public int getTotalSize() {
@@ -26,11 +30,11 @@ public class QueryResult {
         this.done = done;
     }
 
-    public List<Map<String, ?>> getRecords() {
+    public List<T> getRecords() {
         return records;
     }
 
-    public void setRecords(List<Map<String, ?>> records) {
+    public void setRecords(List<T> records) {
         this.records = records;
     }
 
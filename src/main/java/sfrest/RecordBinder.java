@@ -0,0 +1,205 @@
+package sfrest;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Binds sObject records to POJOs, and derives the SOQL field list from the POJO properties.
+ * <p>
+ * Scalar properties map to fields, bean properties to relationship fields (e.g. {@code Owner.Name}) and
+ * collection properties to subqueries on child relationships (e.g. {@code (SELECT Id FROM Contacts)}).
+ * Readers and field lists are computed once per class.
+ * </p>
+ */
+class RecordBinder {
+
+    private static final int MAX_RELATIONSHIP_DEPTH = 5; // SOQL limit for child-to-parent relationships
+
+    private final ObjectMapper mapper;
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, List<String>> fields = new ConcurrentHashMap<>();
+
+    RecordBinder(ObjectMapper objectMapper) {
+        SimpleModule module = new SimpleModule("sfrest-records");
+        module.setDeserializerModifier(new BeanDeserializerModifier() {
+            @Override
+            public JsonDeserializer<?> modifyCollectionDeserializer(DeserializationConfig config, CollectionType type,
+                                                                    BeanDescription beanDesc, JsonDeserializer<?> deserializer) {
+                return new SubqueryDeserializer(deserializer);
+            }
+        });
+
+        this.mapper = objectMapper.copy()
+                .registerModule(module)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    ObjectMapper getObjectMapper() {
+        return mapper;
+    }
+
+    ObjectReader reader(Class<?> type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            reader = mapper.reader(type);
+            readers.putIfAbsent(type, reader);
+        }
+
+        return reader;
+    }
+
+    static String sObjectType(Class<?> type) {
+        SObjectType annotation = type.getAnnotation(SObjectType.class);
+        return annotation != null ? annotation.value() : type.getSimpleName();
+    }
+
+    /**
+     * Field names to select for the class, including relationship fields and subqueries.
+     */
+    List<String> fields(Class<?> type) {
+        List<String> ret = fields.get(type);
+        if (ret == null) {
+            ret = new ArrayList<>();
+            collectFields(mapper.constructType(type), "", 0, true, ret);
+            fields.putIfAbsent(type, ret);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Whether all fields of the class are direct fields, which can be read without a query.
+     */
+    boolean isFlat(Class<?> type) {
+        for (String field : fields(type)) {
+            if (field.indexOf('.') >= 0 || field.startsWith("(")) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    String select(Class<?> type) {
+        return "SELECT " + StringUtils.collectionToDelimitedString(fields(type), ", ") + " FROM " + sObjectType(type);
+    }
+
+    private void collectFields(JavaType type, String prefix, int depth, boolean subqueries, List<String> ret) {
+        DeserializationConfig config = mapper.getDeserializationConfig();
+        BeanDescription beanDesc = config.introspect(type);
+
+        for (BeanPropertyDefinition property : beanDesc.findProperties()) {
+            if (!property.couldDeserialize() || "attributes".equals(property.getName())) {
+                continue;
+            }
+
+            JavaType propertyType = mapper.getTypeFactory().constructType(genericType(property));
+            String name = prefix + property.getName();
+
+            if (propertyType.isCollectionLikeType()) {
+                // Subqueries are only allowed at the top level of the outer query.
+                if (subqueries && !isScalar(propertyType.getContentType())) {
+                    List<String> subFields = new ArrayList<>();
+                    collectFields(propertyType.getContentType(), "", 0, false, subFields);
+                    ret.add("(SELECT " + StringUtils.collectionToDelimitedString(subFields, ", ") + " FROM " + name + ")");
+                }
+            } else if (isScalar(propertyType) || propertyType.isArrayType()) {
+                ret.add(name);
+            } else if (depth < MAX_RELATIONSHIP_DEPTH) {
+                collectFields(propertyType, name + ".", depth + 1, false, ret);
+            }
+        }
+    }
+
+    private static Type genericType(BeanPropertyDefinition property) {
+        if (property.getSetter() != null) {
+            return property.getSetter().getGenericParameterType(0);
+        } else if (property.getField() != null) {
+            return property.getField().getGenericType();
+        } else {
+            return property.getConstructorParameter().getGenericType();
+        }
+    }
+
+    private static boolean isScalar(JavaType type) {
+        Class<?> raw = type.getRawClass();
+        return raw.isPrimitive() || raw.isEnum() || type.isMapLikeType()
+                || raw.getName().startsWith("java.")
+                || Date.class.isAssignableFrom(raw) || Calendar.class.isAssignableFrom(raw);
+    }
+
+    /**
+     * Subquery results come as a nested query result object, this unwraps its {@code records} into the collection.
+     */
+    private static class SubqueryDeserializer extends JsonDeserializer<Object> implements ContextualDeserializer, ResolvableDeserializer {
+
+        private final JsonDeserializer<?> delegate;
+
+        SubqueryDeserializer(JsonDeserializer<?> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
+            if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                return delegate.deserialize(parser, ctxt);
+            }
+
+            Object ret = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                if ("records".equals(field)) {
+                    ret = delegate.deserialize(parser, ctxt);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            return ret;
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) throws JsonMappingException {
+            if (delegate instanceof ContextualDeserializer) {
+                return new SubqueryDeserializer(((ContextualDeserializer) delegate).createContextual(ctxt, property));
+            }
+
+            return this;
+        }
+
+        @Override
+        public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+            if (delegate instanceof ResolvableDeserializer) {
+                ((ResolvableDeserializer) delegate).resolve(ctxt);
+            }
+        }
+    }
+}
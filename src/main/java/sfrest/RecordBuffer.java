@@ -0,0 +1,254 @@
+package sfrest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Collects query records, keeping up to a limit in memory and spilling the rest to a temporary file.
+ * <p>
+ * Pass the buffer as the handler of {@link SFRestClient#query(Query, RecordHandler)} for each page, then iterate it
+ * as often as needed; each iterator returns the records added before it was created, in order. Spilled records are
+ * stored as length-prefixed json and read back through a memory mapping of the file, so iterating them costs no
+ * heap beyond the current record.
+ * </p>
+ * <p>
+ * The memory limit applies to both the number of records and their estimated heap size, whichever is reached first.
+ * The buffer is not thread-safe. Close it to delete the file.
+ * </p>
+ */
+public class RecordBuffer implements RecordHandler<Map<String, ?>>, Iterable<Map<String, ?>>, Closeable {
+
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final int maxRecordsInMemory;
+    private final long maxBytesInMemory;
+
+    private final List<Map<String, ?>> memory = new ArrayList<>();
+    private long memoryBytes;
+
+    private Path file;
+    private FileChannel channel;
+    private DataOutputStream out;
+    private long spilledRecords;
+    private long spilledBytes;
+    private boolean closed;
+    int regionSize = 256 * 1024 * 1024; // Size of the file regions mapped at a time
+
+    /**
+     * @param maxRecordsInMemory max number of records kept in memory
+     * @param maxBytesInMemory   max estimated heap size of the records kept in memory
+     */
+    public RecordBuffer(ObjectMapper mapper, int maxRecordsInMemory, long maxBytesInMemory) {
+        this.writer = mapper.writer();
+        this.reader = mapper.reader(Map.class);
+        this.maxRecordsInMemory = maxRecordsInMemory;
+        this.maxBytesInMemory = maxBytesInMemory;
+    }
+
+    @Override
+    public void handleRecord(Map<String, ?> record) {
+        add(record);
+    }
+
+    public void add(Map<String, ?> record) {
+        if (closed) {
+            throw new IllegalStateException("Buffer already closed");
+        }
+
+        if (out == null) {
+            long size = estimateSize(record);
+            if (memory.size() < maxRecordsInMemory && memoryBytes + size <= maxBytesInMemory) {
+                memory.add(record);
+                memoryBytes += size;
+                return;
+            }
+        }
+
+        try {
+            spill(writer.writeValueAsBytes(record));
+        } catch (IOException e) {
+            throw new SFException("Failed to spill record to " + file, e);
+        }
+    }
+
+    public long size() {
+        return memory.size() + spilledRecords;
+    }
+
+    /**
+     * Number of records written to the file.
+     */
+    public long getSpilledRecords() {
+        return spilledRecords;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    @Override
+    public Iterator<Map<String, ?>> iterator() {
+        if (closed) {
+            throw new IllegalStateException("Buffer already closed");
+        }
+
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new SFException("Failed to flush records to " + file, e);
+            }
+        }
+
+        return new RecordIterator(memory.size(), spilledRecords);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        memory.clear();
+        if (out != null) {
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void spill(byte[] json) throws IOException {
+        if (out == null) {
+            file = Files.createTempFile("sfrest-records", ".bin");
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+        }
+
+        out.writeInt(json.length);
+        out.write(json);
+        spilledRecords++;
+        spilledBytes += 4 + json.length;
+    }
+
+    /**
+     * Rough heap size of a json record, counting object headers, references and UTF-16 strings.
+     */
+    static long estimateSize(Object value) {
+        if (value instanceof String) {
+            return 40 + 2L * ((String) value).length();
+        } else if (value instanceof Map) {
+            long size = 48;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += 32 + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+            }
+            return size;
+        } else if (value instanceof Collection) {
+            long size = 24;
+            for (Object element : (Collection<?>) value) {
+                size += 8 + estimateSize(element);
+            }
+            return size;
+        } else if (value == null || value instanceof Boolean) {
+            return 0; // Shared instances
+        }
+
+        return 24;
+    }
+
+    private class RecordIterator implements Iterator<Map<String, ?>> {
+
+        private final int memoryCount;
+        private final long spillCount;
+        private final long spillEnd;
+
+        private int memoryIndex;
+        private long spillIndex;
+        private long position;
+        private MappedByteBuffer region;
+        private long regionStart;
+        private byte[] bytes = new byte[0];
+
+        RecordIterator(int memoryCount, long spillCount) {
+            this.memoryCount = memoryCount;
+            this.spillCount = spillCount;
+            this.spillEnd = spilledBytes;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return memoryIndex < memoryCount || spillIndex < spillCount;
+        }
+
+        @Override
+        public Map<String, ?> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (closed) {
+                throw new IllegalStateException("Buffer already closed");
+            }
+
+            if (memoryIndex < memoryCount) {
+                return memory.get(memoryIndex++);
+            }
+
+            try {
+                int length = readRegion(4).getInt();
+                position += 4;
+                if (bytes.length < length) {
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                readRegion(length).get(bytes, 0, length);
+                position += length;
+                spillIndex++;
+
+                @SuppressWarnings("unchecked")
+                Map<String, ?> record = reader.readValue(bytes, 0, length);
+                return record;
+            } catch (IOException e) {
+                throw new SFException("Failed to read spilled record from " + file, e);
+            }
+        }
+
+        /**
+         * Returns the mapped region positioned at the current position with at least {@code length} bytes remaining,
+         * mapping the next region of the file if needed.
+         */
+        private MappedByteBuffer readRegion(int length) throws IOException {
+            if (region == null || position + length > regionStart + region.limit()) {
+                regionStart = position;
+                long size = Math.max(Math.min(regionSize, spillEnd - position), length);
+                region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, size);
+            }
+
+            region.position((int) (position - regionStart));
+            return region;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
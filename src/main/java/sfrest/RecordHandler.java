@@ -0,0 +1,11 @@
+package sfrest;
+
+/**
+ * Callback receiving query records one by one, as they are parsed from the response.
+ *
+ * @see SFRestClient#query(Query, RecordHandler)
+ */
+public interface RecordHandler<T> {
+
+    void handleRecord(T record);
+}
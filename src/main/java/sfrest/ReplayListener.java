@@ -0,0 +1,18 @@
+package sfrest;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * Notified when a request is replayed after its token was found invalid and renewed.
+ *
+ * @see SFRestClient#setReplayListener(ReplayListener)
+ */
+public interface ReplayListener {
+
+    /**
+     * Called before the request is sent again.
+     *
+     * @param extraMillis time spent on the failed attempt and the token renewal, i.e. the latency added by the replay
+     */
+    void requestReplayed(HttpMethod method, String uri, long extraMillis);
+}
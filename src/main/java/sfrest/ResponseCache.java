@@ -0,0 +1,321 @@
+package sfrest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP response cache for GET requests, revalidating cached bodies with {@code If-None-Match} / {@code If-Modified-Since}.
+ * <p>
+ * Json responses carrying an {@code ETag} or {@code Last-Modified} header are stored with their body bytes. Subsequent
+ * GETs of the same uri by the same user are sent as conditional requests, and a 304 response is answered with the
+ * cached body. Entries are keyed by the {@link Token#getId() token identity}, so they survive token renewals.
+ * Requests that already carry conditional headers bypass the cache.
+ * </p>
+ * <p>
+ * Successful writes through the same client invalidate cached entries under the written resource, composite
+ * requests invalidate everything. The cache is bounded by entries and total body bytes, evicting in LRU order.
+ * </p>
+ *
+ * @see SFRestClient#setResponseCache(ResponseCache)
+ */
+public class ResponseCache implements ClientHttpRequestInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final int maxEntryBytes;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final ThreadLocal<String> identity = new ThreadLocal<>();
+
+    public ResponseCache() {
+        this(1000, 32 * 1024 * 1024, 1024 * 1024);
+    }
+
+    /**
+     * @param maxEntries    max number of cached responses
+     * @param maxBytes      max total size of cached bodies
+     * @param maxEntryBytes responses larger than this are not cached
+     */
+    public ResponseCache(int maxEntries, long maxBytes, int maxEntryBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        HttpMethod method = request.getMethod();
+        if (method == HttpMethod.GET) {
+            return get(request, body, execution);
+        }
+
+        ClientHttpResponse response = execution.execute(request, body);
+        if (method != HttpMethod.HEAD && method != HttpMethod.OPTIONS && response.getStatusCode().series() == HttpStatus.Series.SUCCESSFUL) {
+            invalidate(request.getURI().getPath());
+        }
+
+        return response;
+    }
+
+    private ClientHttpResponse get(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        HttpHeaders headers = request.getHeaders();
+        if (headers.containsKey("If-None-Match") || headers.containsKey("If-Modified-Since")) {
+            return execution.execute(request, body);
+        }
+
+        String user = identity.get();
+        String key = request.getURI() + " " + (user != null ? user : headers.getFirst("Authorization"));
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+
+        if (entry != null) {
+            if (entry.etag != null) {
+                headers.set("If-None-Match", entry.etag);
+            }
+            if (entry.lastModified != null) {
+                headers.set("If-Modified-Since", entry.lastModified);
+            }
+        }
+
+        ClientHttpResponse response = execution.execute(request, body);
+
+        if (entry != null && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            response.close();
+            hitCount.incrementAndGet();
+            logger.debug("Served from cache: {}", request.getURI());
+
+            return new CachedResponse(entry);
+        }
+
+        missCount.incrementAndGet();
+        return isCacheable(response) ? store(key, request.getURI().getPath(), response) : response;
+    }
+
+    /**
+     * Sets the identity of the token used by requests of the current thread, until {@link #clearIdentity()}.
+     * Without identity, entries are keyed by the {@code Authorization} header.
+     */
+    void setIdentity(String id) {
+        identity.set(id);
+    }
+
+    void clearIdentity() {
+        identity.remove();
+    }
+
+    private boolean isCacheable(ClientHttpResponse response) throws IOException {
+        HttpHeaders headers = response.getHeaders();
+        MediaType contentType = headers.getContentType();
+
+        return response.getStatusCode() == HttpStatus.OK
+                && (headers.getETag() != null || headers.getFirst("Last-Modified") != null)
+                && contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                && headers.getContentLength() <= maxEntryBytes;
+    }
+
+    /**
+     * Reads the body up to the entry size limit, caching it if it's complete.
+     * The returned response replays the bytes read, followed by the rest of the body if it's too large.
+     */
+    private ClientHttpResponse store(String key, String path, ClientHttpResponse response) throws IOException {
+        InputStream in = response.getBody();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while (out.size() <= maxEntryBytes && (n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+
+        if (out.size() > maxEntryBytes) {
+            final InputStream replay = new SequenceInputStream(new ByteArrayInputStream(out.toByteArray()), in);
+            return new ResponseWrapper(response) {
+                @Override
+                public InputStream getBody() {
+                    return replay;
+                }
+            };
+        }
+
+        HttpHeaders headers = response.getHeaders();
+        Entry entry = new Entry(path, headers, out.toByteArray());
+        response.close();
+
+        synchronized (entries) {
+            Entry old = entries.put(key, entry);
+            if (old != null) {
+                totalBytes -= old.body.length;
+            }
+            totalBytes += entry.body.length;
+
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext() && (entries.size() > maxEntries || totalBytes > maxBytes)) {
+                totalBytes -= it.next().body.length;
+                it.remove();
+            }
+        }
+
+        return new CachedResponse(entry);
+    }
+
+    /**
+     * Removes cached entries of the resource and its sub resources, e.g. a record and its child relationships.
+     */
+    public void invalidate(String path) {
+        boolean all = path.contains("/composite");
+
+        synchronized (entries) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (all || entry.path.startsWith(path)) {
+                    totalBytes -= entry.body.length;
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            totalBytes = 0;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getTotalBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    /**
+     * Number of responses served from cache after a 304.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private static class Entry {
+
+        private final String path;
+        private final String etag;
+        private final String lastModified;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        Entry(String path, HttpHeaders headers, byte[] body) {
+            this.path = path;
+            this.etag = headers.getETag();
+            this.lastModified = headers.getFirst("Last-Modified");
+            this.headers = new HttpHeaders();
+            this.headers.putAll(headers);
+            this.headers.setContentLength(body.length);
+            this.headers.remove("Transfer-Encoding");
+            this.body = body;
+        }
+    }
+
+    private static class CachedResponse extends AbstractClientHttpResponse {
+
+        private final Entry entry;
+
+        CachedResponse(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return HttpStatus.OK.value();
+        }
+
+        @Override
+        public String getStatusText() {
+            return HttpStatus.OK.getReasonPhrase();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return entry.headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(entry.body);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class ResponseWrapper extends AbstractClientHttpResponse {
+
+        private final ClientHttpResponse response;
+
+        ResponseWrapper(ClientHttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return response.getBody();
+        }
+
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+}
@@ -1,18 +1,49 @@
 package sfrest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.util.UriTemplate;
 
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 public class SFRestClient implements DisposableBean {
 
@@ -37,8 +68,24 @@ public class SFRestClient implements DisposableBean {
 
     private TokenProvider tokenProvider;
     private TokenStorage tokenStorage;
+    private final ConcurrentMap<Object, FutureTask<Token>> tokenFlights = new ConcurrentHashMap<>(); // Token action in progress per scope
     private SFRestTemplate template;
     private HttpComponentsClientHttpRequestFactory httpClientRequestFactory; // Used only if http client library ( >= 4.3 ) is present.
+    private HttpClientConnectionPool connectionPool; // Used only if connection config is given.
+    private boolean sharedConnectionPool; // Pool owned by a registry, not destroyed with the client.
+    private ClientHttpRequestFactory transport; // Used only if set explicitly.
+    private TaskExecutor taskExecutor;
+    private RecordBinder recordBinder;
+    private MetadataCache metadataCache;
+    private ResponseCache responseCache;
+    private ApiLimitGuard apiLimitGuard;
+    private MetricsInterceptor metricsInterceptor;
+    private GzipCompression gzipCompression;
+    private ClientHttpRequestFactory streamingRequestFactory; // Created on first streaming request.
+    private Set<HttpMethod> replayableMethods = EnumSet.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.OPTIONS);
+    private ReplayListener replayListener;
+    private int maxConcurrentRequests;
+    private Semaphore requestPermits; // Used only if concurrent requests are limited.
 
     public TokenProvider getTokenProvider() {
         return tokenProvider;
@@ -52,21 +99,264 @@ public class SFRestClient implements DisposableBean {
         return template;
     }
 
+    RecordBinder getRecordBinder() {
+        return recordBinder;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return template.getObjectMapper();
+    }
+
+    /**
+     * Replaces the json codec of the rest template, and rebuilds the record binding on top of it.
+     *
+     * @see SFRestTemplate#setObjectMapper(ObjectMapper)
+     */
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        template.setObjectMapper(objectMapper);
+        this.recordBinder = new RecordBinder(objectMapper);
+    }
+
+    /**
+     * The connection pool, or null if the client isn't created with a {@link ConnectionConfig}.
+     */
+    public HttpClientConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * The transport set with {@link #setTransport(ClientHttpRequestFactory)}, or null if the default one is used.
+     */
+    public ClientHttpRequestFactory getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sends requests through the given transport instead of Apache HttpClient or {@code HttpURLConnection},
+     * e.g. an HTTP/2 client multiplexing concurrent requests over one connection.
+     * <p>
+     * Token handling, interceptors and error translation work the same with any transport. The transport is
+     * destroyed with the client if it's a {@link DisposableBean}. Can't be combined with a {@link ConnectionConfig}.
+     * </p>
+     */
+    public synchronized void setTransport(ClientHttpRequestFactory transport) {
+        if (connectionPool != null) {
+            throw new IllegalStateException("Transport can't be replaced when the client has a connection pool");
+        }
+
+        if (httpClientRequestFactory != null) {
+            try {
+                httpClientRequestFactory.destroy();
+            } catch (Exception e) {
+                logger.warn("Failed to close default http client", e);
+            }
+            httpClientRequestFactory = null;
+        }
+
+        this.transport = transport;
+        this.template.setRequestFactory(transport);
+        this.streamingRequestFactory = null;
+    }
+
+    public MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Caches results of {@link #listSObjects()} and {@link #getSObjectMetadata(String, boolean) detailed describes}, disabled by default.
+     */
+    public void setMetadataCache(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Enables conditional GET caching of responses, disabled by default.
+     *
+     * @see ResponseCache
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        template.getInterceptors().remove(this.responseCache);
+        this.responseCache = responseCache;
+        updateInterceptors();
+    }
+
+    public ApiLimitGuard getApiLimitGuard() {
+        return apiLimitGuard;
+    }
+
+    /**
+     * Enables tracking of API usage and throttling when it gets close to the limit, disabled by default.
+     *
+     * @see ApiLimitGuard
+     */
+    public void setApiLimitGuard(ApiLimitGuard apiLimitGuard) {
+        template.getInterceptors().remove(this.apiLimitGuard);
+        this.apiLimitGuard = apiLimitGuard;
+        updateInterceptors();
+    }
+
+    public MetricsListener getMetricsListener() {
+        return metricsInterceptor != null ? metricsInterceptor.getListener() : null;
+    }
+
+    /**
+     * Reports latency, sizes and outcome of every request to the listener, disabled by default.
+     *
+     * @see EndpointMetrics
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        template.getInterceptors().remove(this.metricsInterceptor);
+        this.metricsInterceptor = metricsListener != null ? new MetricsInterceptor(metricsListener) : null;
+        if (gzipCompression != null) {
+            gzipCompression.setMetricsListener(metricsListener);
+        }
+        updateInterceptors();
+    }
+
+    public GzipCompression getGzipCompression() {
+        return gzipCompression;
+    }
+
+    /**
+     * Enables gzip compression of responses and large request bodies, disabled by default.
+     *
+     * @see GzipCompression
+     */
+    public void setGzipCompression(GzipCompression gzipCompression) {
+        template.getInterceptors().remove(this.gzipCompression);
+        this.gzipCompression = gzipCompression;
+        if (gzipCompression != null) {
+            gzipCompression.setMetricsListener(getMetricsListener());
+        }
+        updateInterceptors();
+    }
+
+    /**
+     * Keeps the built-in interceptors after any custom ones, in a fixed order: metrics, api limit guard, response cache,
+     * gzip compression.
+     */
+    private void updateInterceptors() {
+        List<ClientHttpRequestInterceptor> interceptors = template.getInterceptors();
+        for (ClientHttpRequestInterceptor interceptor : new ClientHttpRequestInterceptor[]{metricsInterceptor, apiLimitGuard, responseCache, gzipCompression}) {
+            if (interceptor != null) {
+                interceptors.remove(interceptor);
+                interceptors.add(interceptor);
+            }
+        }
+    }
+
+    public TaskExecutor getTaskExecutor() {
+        return taskExecutor;
+    }
+
+    /**
+     * Executor for background work such as page prefetching, defaults to a {@link SimpleAsyncTaskExecutor}.
+     */
+    public void setTaskExecutor(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    public Set<HttpMethod> getReplayableMethods() {
+        return replayableMethods;
+    }
+
+    /**
+     * Methods of requests that are sent again once the token has been renewed after an invalid session error,
+     * defaults to the idempotent methods. Requests of other methods fail with {@link TokenException}.
+     */
+    public void setReplayableMethods(Set<HttpMethod> replayableMethods) {
+        this.replayableMethods = replayableMethods.isEmpty() ? EnumSet.noneOf(HttpMethod.class) : EnumSet.copyOf(replayableMethods);
+    }
+
+    public ReplayListener getReplayListener() {
+        return replayListener;
+    }
+
+    public void setReplayListener(ReplayListener replayListener) {
+        this.replayListener = replayListener;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Max requests in flight at a time, further requests wait for one to complete; non-positive for no limit, the default.
+     * <p>
+     * A request holds its permit until the response is read, so record handlers of streamed queries must not send
+     * requests through the same client when the limit is reached.
+     * </p>
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        setRequestPermits(maxConcurrentRequests, maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests) : null);
+    }
+
+    /**
+     * Limits requests with given permits, which may outlive the client.
+     */
+    void setRequestPermits(int maxConcurrentRequests, Semaphore requestPermits) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.requestPermits = requestPermits;
+    }
+
     public SFRestClient(UserPassTokenProvider systemTokenProvider) {
         this(systemTokenProvider, new DefaultTokenStorage());
     }
 
     public SFRestClient(TokenProvider tokenProvider, TokenStorage tokenStorage) {
+        this(tokenProvider, tokenStorage, null);
+    }
+
+    /**
+     * @param connectionConfig settings of the connection pool, requires Apache HttpClient 4.3+; null to use HttpClient defaults if present
+     */
+    public SFRestClient(TokenProvider tokenProvider, TokenStorage tokenStorage, ConnectionConfig connectionConfig) {
         this.tokenProvider = tokenProvider;
         this.tokenStorage = tokenStorage;
         this.template = new SFRestTemplate();
+        this.recordBinder = new RecordBinder(template.getObjectMapper());
 
-        if (httpClientPresent) {
+        SimpleAsyncTaskExecutor defaultExecutor = new SimpleAsyncTaskExecutor("sfrest-");
+        defaultExecutor.setDaemon(true);
+        this.taskExecutor = defaultExecutor;
+
+        if (connectionConfig != null) {
+            if (!httpClientPresent) {
+                throw new IllegalStateException("Connection config requires Apache HttpClient 4.3+");
+            }
+
+            connectionPool = new HttpClientConnectionPool(connectionConfig);
+            httpClientRequestFactory = connectionPool.getRequestFactory();
+            this.template.setRequestFactory(httpClientRequestFactory);
+        } else if (httpClientPresent) {
             httpClientRequestFactory = new HttpComponentsClientHttpRequestFactory();
             this.template.setRequestFactory(httpClientRequestFactory);
         }
     }
 
+    /**
+     * Creates a client on resources shared with other clients, the pool isn't destroyed with the client.
+     *
+     * @see SFRestClientRegistry
+     */
+    SFRestClient(TokenProvider tokenProvider, TokenStorage tokenStorage, HttpClientConnectionPool connectionPool, RecordBinder recordBinder,
+                 ObjectMapper objectMapper, TaskExecutor taskExecutor) {
+        this.tokenProvider = tokenProvider;
+        this.tokenStorage = tokenStorage;
+        this.template = new SFRestTemplate(objectMapper);
+        this.recordBinder = recordBinder;
+        this.taskExecutor = taskExecutor;
+
+        this.connectionPool = connectionPool;
+        this.sharedConnectionPool = true;
+        this.httpClientRequestFactory = connectionPool.getRequestFactory();
+        this.template.setRequestFactory(httpClientRequestFactory);
+    }
+
     /**
      * Returns response as json string.
      */
@@ -91,13 +381,22 @@ public class SFRestClient implements DisposableBean {
     }
 
     public Map<String, ?> listSObjects() {
-        return getMap(BASE_URI_REST + "/sobjects", HttpMethod.GET, null);
+        String uri = BASE_URI_REST + "/sobjects";
+        if (metadataCache != null) {
+            return metadataCache.get(this, uri);
+        }
+
+        return getMap(uri, HttpMethod.GET, null);
     }
 
     public Map<String, ?> getSObjectMetadata(String type, boolean describeDetails) {
         String uri = BASE_URI_REST + "/sobjects/{type}";
         if (describeDetails) {
             uri += "/describe";
+
+            if (metadataCache != null) {
+                return metadataCache.get(this, uri, type);
+            }
         }
 
         return getMap(uri, HttpMethod.GET, null, type);
@@ -113,19 +412,46 @@ public class SFRestClient implements DisposableBean {
         return getMap(uri, HttpMethod.GET, null, type, id);
     }
 
+    /**
+     * Reads the sObject straight into an instance of given class, fields are derived from the class properties.
+     * <p>
+     * Classes with relationship or subquery properties are read with a query, as the sObject resource only returns direct fields.
+     * </p>
+     *
+     * @see SObjectType
+     */
+    public <T> T getSObject(Class<T> type, String id) {
+        if (!recordBinder.isFlat(type)) {
+            List<T> records = query(createQuery(type, whereId(id)), type).getRecords();
+            if (records.isEmpty()) {
+                throw new SFException("NOT_FOUND", "The requested resource does not exist");
+            }
+
+            return records.get(0);
+        }
+
+        String uri = BASE_URI_REST + "/sobjects/{type}/{id}?fields=" + StringUtils.collectionToCommaDelimitedString(recordBinder.fields(type));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+
+        final ObjectReader reader = recordBinder.reader(type);
+        return execute(uri, HttpMethod.GET, new HttpEntity<>(headers), new ResponseExtractor<T>() {
+            @Override
+            public T extractData(ClientHttpResponse response) throws IOException {
+                return reader.readValue(response.getBody());
+            }
+        }, RecordBinder.sObjectType(type), id);
+    }
+
     public List<Map<String, ?>> query(String soql) {
         return query(new Query(soql)).getRecords();
     }
 
-    public QueryResult query(Query query) {
-        String uri = query.getNextUri();
-        if (uri == null) {
-            uri = BASE_URI_REST + "/query/?q=" + query.getSoql();
-        }
-
-        Map<String, ?> ret = getMap(uri, HttpMethod.GET, null);
+    public QueryResult<Map<String, ?>> query(Query query) {
+        Map<String, ?> ret = exchange(queryUri(query), HttpMethod.GET, new HttpEntity<>(queryHeaders(query)), TYPE_MAP).getBody();
 
-        QueryResult qResult = new QueryResult();
+        QueryResult<Map<String, ?>> qResult = new QueryResult<>();
         qResult.setTotalSize((Integer) ret.get("totalSize"));
         qResult.setDone((Boolean) ret.get("done"));
         qResult.setRecords((List) ret.get("records"));
@@ -136,6 +462,144 @@ public class SFRestClient implements DisposableBean {
         return qResult;
     }
 
+    static String whereId(String id) {
+        if (!StringUtils.hasText(id) || !id.matches("[a-zA-Z0-9]+")) {
+            throw new IllegalArgumentException("Invalid id: " + id);
+        }
+
+        return "WHERE Id = '" + id + "'";
+    }
+
+    /**
+     * Fetches next page of the query, passing each record to the handler as soon as it's parsed from the response.
+     * <p>
+     * Unlike {@link #query(Query)}, records of the page are not held in memory, so the returned {@link QueryResult}
+     * has no records.
+     * </p>
+     */
+    public QueryResult<Map<String, ?>> query(Query query, RecordHandler<Map<String, ?>> handler) {
+        ObjectMapper mapper = template.getObjectMapper();
+        ObjectReader recordReader = mapper.reader(mapper.getTypeFactory().constructType(TYPE_MAP.getType()));
+        return queryStreaming(query, new QueryResponseExtractor<>(recordReader, handler));
+    }
+
+    /**
+     * Fetches next page of the query, binding records to instances of given class.
+     * <p>
+     * Relationship fields bind to nested beans and subquery results to collection properties.
+     * Use {@link #createQuery(Class, String)} to select exactly the bound fields.
+     * </p>
+     */
+    public <T> QueryResult<T> query(Query query, Class<T> type) {
+        final List<T> records = new ArrayList<>();
+        QueryResult<T> qResult = query(query, type, new RecordHandler<T>() {
+            @Override
+            public void handleRecord(T record) {
+                records.add(record);
+            }
+        });
+        qResult.setRecords(records);
+
+        return qResult;
+    }
+
+    /**
+     * Streaming version of {@link #query(Query, Class)}, see {@link #query(Query, RecordHandler)}.
+     */
+    public <T> QueryResult<T> query(Query query, Class<T> type, RecordHandler<T> handler) {
+        return queryStreaming(query, new QueryResponseExtractor<>(recordBinder.reader(type), handler));
+    }
+
+    /**
+     * Creates a query selecting the fields bound by given class, e.g. {@code createQuery(Account.class, "WHERE Name LIKE 'A%'")}.
+     */
+    public Query createQuery(Class<?> type, String conditions) {
+        String soql = recordBinder.select(type);
+        if (StringUtils.hasText(conditions)) {
+            soql += " " + conditions;
+        }
+
+        return new Query(soql);
+    }
+
+    private <T> QueryResult<T> queryStreaming(Query query, QueryResponseExtractor<T> extractor) {
+        HttpHeaders headers = queryHeaders(query);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+
+        QueryResult<T> qResult = execute(queryUri(query), HttpMethod.GET, new HttpEntity<>(headers), extractor);
+
+        query.setNextUri(!qResult.isDone() ? extractor.getNextRecordsUrl() : null);
+        qResult.setQuery(query);
+
+        return qResult;
+    }
+
+    private static String queryUri(Query query) {
+        String uri = query.getNextUri();
+        if (uri == null) {
+            uri = BASE_URI_REST + "/query/?q=" + query.getSoql();
+        }
+
+        return uri;
+    }
+
+    private static HttpHeaders queryHeaders(Query query) {
+        HttpHeaders headers = new HttpHeaders();
+        if (query.getBatchSize() != null) {
+            headers.add("Sforce-Query-Options", "batchSize=" + query.getBatchSize());
+        }
+
+        return headers;
+    }
+
+    /**
+     * Iterates all records of the query, fetching up to {@code prefetch} pages ahead in the background.
+     * <p>
+     * The returned iterator must be closed if it's not read to the end.
+     * </p>
+     *
+     * @see QueryIterator
+     */
+    public QueryIterator queryIterator(Query query, int prefetch) {
+        return new QueryIterator(this, query, prefetch, taskExecutor);
+    }
+
+    /**
+     * Iterates all records of the query, fetching up to {@code parallelism} pages at a time once the first page
+     * tells how many there are.
+     * <p>
+     * The returned iterator must be closed if it's not read to the end.
+     * </p>
+     *
+     * @param ordered whether records are returned in query order, otherwise pages are returned as they arrive
+     * @see ParallelPageIterator
+     */
+    public ParallelPageIterator parallelPageIterator(Query query, int parallelism, boolean ordered) {
+        return new ParallelPageIterator(this, query, parallelism, ordered, taskExecutor);
+    }
+
+    /**
+     * Iterates all records of the chunk queries, running up to {@code parallelism} chunks at a time.
+     * <p>
+     * The returned iterator must be closed if it's not read to the end.
+     * </p>
+     *
+     * @see QueryChunks
+     * @see ParallelQueryIterator
+     */
+    public ParallelQueryIterator parallelQueryIterator(List<Query> chunks, int parallelism) {
+        return new ParallelQueryIterator(this, chunks, parallelism, taskExecutor);
+    }
+
+    /**
+     * Starts a batch of requests to be sent in one round trip.
+     *
+     * @see BatchRequest
+     */
+    public BatchRequest batch() {
+        return new BatchRequest(this);
+    }
+
     public Environment getEnvironment() {
         return tokenProvider.getEnvironment();
     }
@@ -148,50 +612,471 @@ public class SFRestClient implements DisposableBean {
     }
 
     public <T> T execute(String uri, HttpMethod method, Object requestBody, ParameterizedTypeReference<T> responseType, Object... uriVariables) {
+        return exchange(uri, method, new HttpEntity<>(requestBody), responseType, uriVariables).getBody();
+    }
+
+    /**
+     * Same as {@link #execute(String, HttpMethod, Object, ParameterizedTypeReference, Object...)}, but takes additional
+     * request headers from the request entity and returns the whole response entity.
+     */
+    public <T> ResponseEntity<T> exchange(String uri, HttpMethod method, HttpEntity<?> requestEntity, ParameterizedTypeReference<T> responseType, Object... uriVariables) {
+        Type type = responseType.getType();
+        return doExecute(uri, method, requestEntity, type, template.<T>responseEntityExtractor(type), uriVariables);
+    }
+
+    /**
+     * Executes the request and reads the response with given extractor, which can consume the response body as a stream.
+     */
+    public <T> T execute(String uri, HttpMethod method, HttpEntity<?> requestEntity, ResponseExtractor<T> responseExtractor, Object... uriVariables) {
+        return doExecute(uri, method, requestEntity, null, responseExtractor, uriVariables);
+    }
+
+    /**
+     * Executes the request with a body written by the given callback straight to the connection, without buffering it
+     * in memory, e.g. to upload large files.
+     * <p>
+     * Such requests bypass the rest template interceptors, and are not replayed on invalid session errors since the
+     * body can only be written once.
+     * </p>
+     *
+     * @param responseExtractor reads the response, can be null to ignore it
+     */
+    public <T> T executeStreaming(String uri, HttpMethod method, HttpHeaders headers, StreamingHttpOutputMessage.Body body, ResponseExtractor<T> responseExtractor, Object... uriVariables) {
         Token token = getToken();
 
         if (!uri.startsWith("http")) {
             uri = token.getInstanceUrl() + (uri.startsWith("/") ? "" : "/") + uri;
         }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("Authorization", "Bearer " + token.getAccessToken());
-        headers.add("Content-Type", "application/json;charset=UTF-8");
+        Semaphore permits = acquirePermit();
+        ClientHttpResponse response = null;
+        try {
+            ClientHttpRequest request = getStreamingRequestFactory().createRequest(new UriTemplate(uri).expand(uriVariables), method);
+            request.getHeaders().putAll(headers);
+            request.getHeaders().set("Authorization", "Bearer " + token.getAccessToken());
+
+            if (request instanceof StreamingHttpOutputMessage) {
+                ((StreamingHttpOutputMessage) request).setBody(body);
+            } else {
+                body.writeTo(request.getBody());
+            }
+
+            response = request.execute();
+            ResponseErrorHandler errorHandler = template.getErrorHandler();
+            if (errorHandler.hasError(response)) {
+                errorHandler.handleError(response);
+            }
+
+            return responseExtractor != null ? responseExtractor.extractData(response) : null;
+        } catch (TokenException e) {
+            clearToken(token);
+            throw e;
+        } catch (IOException e) {
+            throw new ResourceAccessException("I/O error on " + method + " request for \"" + uri + "\": " + e.getMessage(), e);
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    private synchronized ClientHttpRequestFactory getStreamingRequestFactory() {
+        if (streamingRequestFactory == null) {
+            if (httpClientRequestFactory != null) {
+                HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClientRequestFactory.getHttpClient());
+                factory.setBufferRequestBody(false);
+                streamingRequestFactory = factory; // Shares the http client, so it's not destroyed separately.
+            } else if (transport != null) {
+                streamingRequestFactory = transport;
+            } else {
+                SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+                factory.setBufferRequestBody(false);
+                streamingRequestFactory = factory;
+            }
+        }
+
+        return streamingRequestFactory;
+    }
+
+    private <T> T doExecute(String uri, HttpMethod method, HttpEntity<?> requestEntity, Type responseType, ResponseExtractor<T> responseExtractor, Object... uriVariables) {
+        Semaphore permits = acquirePermit();
+        try {
+            return doExecuteWithReplay(uri, method, requestEntity, responseType, responseExtractor, uriVariables);
+        } finally {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    private Semaphore acquirePermit() {
+        Semaphore permits = requestPermits;
+        if (permits != null) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SFException("Interrupted while waiting for a request permit", e);
+            }
+        }
+
+        return permits;
+    }
+
+    private <T> T doExecuteWithReplay(String uri, HttpMethod method, HttpEntity<?> requestEntity, Type responseType, ResponseExtractor<T> responseExtractor, Object... uriVariables) {
+        Token token = getToken();
+        long start = System.nanoTime();
 
         try {
-            return template.exchange(uri, method, new HttpEntity<>(requestBody, headers), responseType, uriVariables).getBody();
+            return doExecute(token, uri, method, requestEntity, responseType, responseExtractor, uriVariables);
         } catch (TokenException e) {
-            tokenStorage.clearToken();
-            logger.debug("Invalid token cleared successfully");
+            if (!replayableMethods.contains(method)) {
+                clearToken(token);
+                throw e;
+            }
 
-            throw e;
+            Token renewedToken;
+            try {
+                renewedToken = renewToken(token);
+            } catch (RuntimeException renewalFailure) {
+                e.addSuppressed(renewalFailure);
+                throw e;
+            }
+
+            long extraMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            logger.debug("Replaying {} {} with renewed token, {} ms lost", method, uri, extraMillis);
+            if (replayListener != null) {
+                replayListener.requestReplayed(method, uri, extraMillis);
+            }
+
+            return doExecute(renewedToken, uri, method, requestEntity, responseType, responseExtractor, uriVariables);
+        }
+    }
+
+    private <T> T doExecute(Token token, String uri, HttpMethod method, HttpEntity<?> requestEntity, Type responseType, ResponseExtractor<T> responseExtractor, Object... uriVariables) {
+        if (!uri.startsWith("http")) {
+            uri = token.getInstanceUrl() + (uri.startsWith("/") ? "" : "/") + uri;
+        }
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.putAll(requestEntity.getHeaders());
+        requestHeaders.add("Authorization", "Bearer " + token.getAccessToken());
+        if (requestHeaders.getContentType() == null) {
+            requestHeaders.add("Content-Type", "application/json;charset=UTF-8");
+        }
+
+        RequestCallback requestCallback = template.httpEntityCallback(new HttpEntity<>(requestEntity.getBody(), requestHeaders), responseType);
+        ResponseCache cache = responseCache;
+        if (cache == null || token.getId() == null) {
+            return template.execute(uri, method, requestCallback, responseExtractor, uriVariables);
+        }
+
+        cache.setIdentity(token.getId());
+        try {
+            return template.execute(uri, method, requestCallback, responseExtractor, uriVariables);
+        } finally {
+            cache.clearIdentity();
         }
     }
 
-    private Token getToken() {
+    /**
+     * Pays the first-request costs up front, so they don't show up as latency of the first real requests after startup.
+     * <p>
+     * Gets the token, sends {@code connections} concurrent requests to the versions resource to open as many pooled
+     * connections to the instance (bounded by the max connections per route), runs the json codec over a sample query
+     * response, and preloads the {@link MetadataCache} if set. Failures are thrown, the caller decides whether startup
+     * should go on without warm-up.
+     * </p>
+     *
+     * @param connections number of connections to open, 0 to skip
+     */
+    public WarmUpResult warmUp(int connections) {
+        long start = System.nanoTime();
+        Token token = getToken();
+        long tokenMillis = elapsedMillis(start);
+
+        start = System.nanoTime();
+        openConnections(connections);
+        long connectionMillis = elapsedMillis(start);
+        int pooled = connectionPool != null ? connectionPool.getStats(token.getInstanceUrl()).getAvailable() : -1;
+
+        start = System.nanoTime();
+        warmUpCodec();
+        long codecMillis = elapsedMillis(start);
+
+        start = System.nanoTime();
+        if (metadataCache != null) {
+            metadataCache.preload(this);
+        }
+        long metadataMillis = elapsedMillis(start);
+
+        WarmUpResult result = new WarmUpResult(tokenMillis, connectionMillis, pooled, codecMillis, metadataMillis);
+        logger.info("Warm-up done: {}", result);
+        return result;
+    }
+
+    private void openConnections(int connections) {
+        final CountDownLatch done = new CountDownLatch(connections);
+        final List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<RuntimeException>());
+
+        for (int i = 0; i < connections; i++) {
+            taskExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        getList("/services/data", HttpMethod.GET, null);
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SFException("Interrupted while opening connections", e);
+        }
+
+        if (!failures.isEmpty()) {
+            throw failures.get(0);
+        }
+    }
+
+    private void warmUpCodec() {
+        ObjectMapper mapper = getObjectMapper();
+        String json = "{\"totalSize\":1,\"done\":true,\"records\":[{\"attributes\":{\"type\":\"Account\",\"url\":\"/services/data/v29.0/sobjects/Account/001A\"},"
+                + "\"Id\":\"001A\",\"Name\":\"Acme\",\"AnnualRevenue\":1.5E7,\"NumberOfEmployees\":120,\"IsDeleted\":false,\"Owner\":{\"Name\":\"Admin\"}}]}";
+
+        try {
+            for (int i = 0; i < 200; i++) {
+                mapper.writeValueAsBytes(mapper.readValue(json, Map.class));
+            }
+        } catch (IOException e) {
+            throw new SFException("Failed to warm up json codec", e);
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the stored token, or requests a new one if there's none.
+     * <p>
+     * Acquisition is single-flight per token scope: while one thread is requesting the token, other threads of the same
+     * scope wait and then pick up the stored result, or the failure, instead of logging in again.
+     * </p>
+     *
+     * @see ScopedTokenStorage
+     */
+    Token getToken() {
         Token token = tokenStorage.getToken();
-        if (token == null) {
-            logger.debug("Token not found, requesting new token...");
-            token = tokenProvider.requestToken(template);
-            logger.debug("Got token: {}", token);
+        if (token != null) {
+            return token;
+        }
+
+        return singleFlight(new Callable<Token>() {
+            @Override
+            public Token call() {
+                Token token = tokenStorage.getToken();
+                return token != null ? token : requestToken();
+            }
+        });
+    }
+
+    /**
+     * Refreshes the stored token with its refresh token, unless it has been replaced by another thread already.
+     * <p>
+     * The refresh is done on a copy, so threads still holding the stale token are not affected until the
+     * refreshed one is saved.
+     * </p>
+     *
+     * @return the refreshed token, or the current one if it was replaced meanwhile
+     */
+    Token refreshToken(final Token staleToken) {
+        return singleFlight(new Callable<Token>() {
+            @Override
+            public Token call() {
+                Token token = tokenStorage.getToken();
+                if (token == null || !token.getAccessToken().equals(staleToken.getAccessToken())) {
+                    return token;
+                }
+
+                return refresh(token);
+            }
+        });
+    }
+
+    /**
+     * Replaces the invalid token, by refreshing it if possible, otherwise by requesting a new one.
+     * <p>
+     * If another thread has replaced the token already, its token is returned. When the token can't be renewed,
+     * it's cleared and the failure is thrown.
+     * </p>
+     */
+    private Token renewToken(final Token invalidToken) {
+        return singleFlight(new Callable<Token>() {
+            @Override
+            public Token call() {
+                Token token = tokenStorage.getToken();
+                if (token != null && !token.getAccessToken().equals(invalidToken.getAccessToken())) {
+                    return token;
+                }
+
+                if (token != null && tokenProvider.isRefreshable(token)) {
+                    try {
+                        return refresh(token);
+                    } catch (RuntimeException e) {
+                        logger.debug("Failed to refresh token, requesting new token", e);
+                    }
+                }
+
+                if (token != null) {
+                    tokenStorage.clearToken();
+                    logger.debug("Invalid token cleared successfully");
+                }
+                return requestToken();
+            }
+        });
+    }
 
-            tokenStorage.saveToken(token);
-            logger.debug("Token saved successfully");
+    /**
+     * Runs the token action unless another thread of the same scope is running one, in which case this thread waits
+     * for it and then runs its own action, which finds the result in the storage. A failure of the other thread's
+     * action is thrown to the waiting threads too.
+     */
+    private Token singleFlight(Callable<Token> action) {
+        Object scope = tokenStorage instanceof ScopedTokenStorage ? ((ScopedTokenStorage) tokenStorage).getScope() : tokenStorage;
+
+        while (true) {
+            FutureTask<Token> task = new FutureTask<>(action);
+            FutureTask<Token> running = tokenFlights.putIfAbsent(scope, task);
+            if (running == null) {
+                try {
+                    task.run();
+                } finally {
+                    tokenFlights.remove(scope, task);
+                }
+                return result(task);
+            }
+
+            result(running);
         }
+    }
 
+    private static Token result(FutureTask<Token> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SFException("Interrupted while waiting for token", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new SFException("Token acquisition failed", e.getCause());
+        }
+    }
+
+    /**
+     * Requests a new token and saves it, must run in a single flight.
+     */
+    private Token requestToken() {
+        logger.debug("Token not found, requesting new token...");
+        long start = System.nanoTime();
+        Token token = tokenProvider.requestToken(template);
+        tokenAcquired(start);
+        logger.debug("Got token: {}", token);
+
+        tokenStorage.saveToken(token);
+        logger.debug("Token saved successfully");
         return token;
     }
 
+    /**
+     * Refreshes a copy of the token and saves it, must run in a single flight.
+     */
+    private Token refresh(Token token) {
+        Token refreshed = copyOf(token);
+        logger.debug("Refreshing token...");
+        long start = System.nanoTime();
+        tokenProvider.refreshToken(template, refreshed);
+        tokenAcquired(start);
+        logger.debug("Got refreshed token: {}", refreshed);
+
+        tokenStorage.saveToken(refreshed);
+        return refreshed;
+    }
+
+    private void tokenAcquired(long start) {
+        MetricsInterceptor metrics = metricsInterceptor;
+        if (metrics != null) {
+            metrics.getListener().tokenAcquired(System.nanoTime() - start);
+        }
+    }
+
+    private static Token copyOf(Token token) {
+        Token copy = new Token();
+        copy.setId(token.getId());
+        copy.setIssueTime(token.getIssueTime());
+        copy.setInstanceUrl(token.getInstanceUrl());
+        copy.setSignature(token.getSignature());
+        copy.setAccessToken(token.getAccessToken());
+        copy.setRefreshToken(token.getRefreshToken());
+        return copy;
+    }
+
+    /**
+     * Clears the invalid token, unless it has been replaced by another thread already.
+     */
+    private void clearToken(final Token invalidToken) {
+        try {
+            singleFlight(new Callable<Token>() {
+                @Override
+                public Token call() {
+                    Token token = tokenStorage.getToken();
+                    if (token != null && token.getAccessToken().equals(invalidToken.getAccessToken())) {
+                        tokenStorage.clearToken();
+                        logger.debug("Invalid token cleared successfully");
+                    }
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.debug("Token not cleared, concurrent renewal failed", e); // The token has been cleared or replaced by that renewal.
+        }
+    }
+
     @Override
     public void destroy() throws Exception {
-        if (httpClientRequestFactory != null) {
+        if (sharedConnectionPool) {
+            return;
+        }
+
+        if (connectionPool != null) {
+            connectionPool.destroy();
+        } else if (httpClientRequestFactory != null) {
             httpClientRequestFactory.destroy();
+        } else if (transport instanceof DisposableBean) {
+            ((DisposableBean) transport).destroy();
         }
     }
 
-    private static class DefaultTokenStorage implements TokenStorage {
+    /**
+     * In-memory storage of a single token, shared by all threads.
+     */
+    static class DefaultTokenStorage implements TokenStorage {
 
-        private Token token;
+        private volatile Token token;
 
         @Override
         public Token getToken() {
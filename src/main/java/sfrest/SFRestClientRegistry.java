@@ -0,0 +1,256 @@
+package sfrest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out clients for many orgs or users, keyed by a name of the caller's choice, on one shared connection pool and
+ * json codec.
+ * <p>
+ * Each key is registered with its own {@link TokenProvider} and {@link TokenStorage}, so tokens never leak between
+ * orgs, and optionally its own limit of concurrent requests, so one busy org can't take all pooled connections.
+ * Clients are created on first use and dropped when not requested for the idle timeout; the registration, and with it
+ * the stored token and the request limit, is kept, so the next request creates a new client without logging in again.
+ * </p>
+ * <p>
+ * Settings made on a handed out client are lost when it's evicted. Destroying a client doesn't close the shared pool,
+ * destroying the registry does.
+ * </p>
+ */
+public class SFRestClientRegistry implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SFRestClientRegistry.class);
+
+    private final HttpClientConnectionPool connectionPool;
+    private final ObjectMapper objectMapper;
+    private final RecordBinder recordBinder;
+    private final SimpleAsyncTaskExecutor taskExecutor;
+    private final ConcurrentMap<String, Registration> registrations = new ConcurrentHashMap<>();
+
+    private int maxConcurrentRequests = 10;
+    private long idleTimeout = TimeUnit.MINUTES.toMillis(10);
+    private long evictionInterval = TimeUnit.MINUTES.toMillis(1);
+    private ScheduledExecutorService evictor;
+
+    public SFRestClientRegistry(ConnectionConfig connectionConfig) {
+        this(connectionConfig, new ObjectMapper());
+    }
+
+    /**
+     * @param connectionConfig settings of the shared connection pool, requires Apache HttpClient 4.3+
+     * @param objectMapper     json codec shared by all clients
+     */
+    public SFRestClientRegistry(ConnectionConfig connectionConfig, ObjectMapper objectMapper) {
+        this.connectionPool = new HttpClientConnectionPool(connectionConfig);
+        this.objectMapper = objectMapper;
+        this.recordBinder = new RecordBinder(objectMapper);
+
+        this.taskExecutor = new SimpleAsyncTaskExecutor("sfrest-");
+        this.taskExecutor.setDaemon(true);
+    }
+
+    public HttpClientConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Default max requests in flight per key, defaults to 10; non-positive for no limit. Applies to keys registered
+     * afterwards.
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Clients not requested for longer than this are dropped, in milliseconds, defaults to 10 minutes.
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    /**
+     * How often idle clients are dropped, in milliseconds, defaults to 1 minute; non-positive disables the eviction
+     * task. Must be set before the first registration.
+     */
+    public void setEvictionInterval(long evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+
+    /**
+     * Registers the key with the default request limit.
+     *
+     * @param tokenStorage storage of the key's token, null for an in-memory one
+     */
+    public void register(String key, TokenProvider tokenProvider, TokenStorage tokenStorage) {
+        register(key, tokenProvider, tokenStorage, maxConcurrentRequests);
+    }
+
+    /**
+     * Registers the key, replacing any previous registration of it.
+     *
+     * @param tokenStorage          storage of the key's token, null for an in-memory one
+     * @param maxConcurrentRequests max requests in flight for the key, non-positive for no limit
+     */
+    public void register(String key, TokenProvider tokenProvider, TokenStorage tokenStorage, int maxConcurrentRequests) {
+        startEvictor();
+
+        Registration registration = new Registration(tokenProvider,
+                tokenStorage != null ? tokenStorage : new SFRestClient.DefaultTokenStorage(), maxConcurrentRequests);
+        registrations.put(key, registration);
+        logger.debug("Registered client {}", key);
+    }
+
+    /**
+     * Removes the registration of the key, returns whether it was registered.
+     */
+    public boolean unregister(String key) {
+        return registrations.remove(key) != null;
+    }
+
+    public boolean isRegistered(String key) {
+        return registrations.containsKey(key);
+    }
+
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(registrations.keySet());
+    }
+
+    /**
+     * Returns the client of the key, creating it if there's none or it has been evicted.
+     *
+     * @throws IllegalArgumentException if the key isn't registered
+     */
+    public SFRestClient getClient(String key) {
+        Registration registration = registrations.get(key);
+        if (registration == null) {
+            throw new IllegalArgumentException("No client registered for " + key);
+        }
+
+        return registration.getClient();
+    }
+
+    /**
+     * Number of clients currently held, excluding evicted ones.
+     */
+    public int getClientCount() {
+        int count = 0;
+        for (Registration registration : registrations.values()) {
+            if (registration.client != null) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Drops clients not requested for longer than the idle timeout, returns the number dropped.
+     */
+    public int evictIdleClients() {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for (Registration registration : registrations.values()) {
+            if (registration.evictIfIdle(now - idleTimeout)) {
+                count++;
+            }
+        }
+
+        if (count > 0) {
+            logger.debug("Evicted {} idle clients", count);
+        }
+        return count;
+    }
+
+    private synchronized void startEvictor() {
+        if (evictor != null || evictionInterval <= 0) {
+            return;
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sfrest-registry-evictor-");
+        threadFactory.setDaemon(true);
+
+        evictor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdleClients();
+            }
+        }, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void destroy() throws Exception {
+        if (evictor != null) {
+            evictor.shutdownNow();
+            evictor = null;
+        }
+        registrations.clear();
+        connectionPool.destroy();
+    }
+
+    private class Registration {
+
+        private final TokenProvider tokenProvider;
+        private final TokenStorage tokenStorage;
+        private final int maxConcurrentRequests;
+        private final Semaphore requestPermits; // Outlives the clients, so an evicted client still in use counts too.
+
+        private volatile SFRestClient client;
+        private volatile long lastUsed;
+
+        Registration(TokenProvider tokenProvider, TokenStorage tokenStorage, int maxConcurrentRequests) {
+            this.tokenProvider = tokenProvider;
+            this.tokenStorage = tokenStorage;
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            this.requestPermits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests) : null;
+        }
+
+        synchronized SFRestClient getClient() {
+            if (client == null) {
+                client = new SFRestClient(tokenProvider, tokenStorage, connectionPool, recordBinder, objectMapper, taskExecutor);
+                client.setRequestPermits(maxConcurrentRequests, requestPermits);
+            }
+
+            lastUsed = System.currentTimeMillis();
+            return client;
+        }
+
+        synchronized boolean evictIfIdle(long idleSince) {
+            if (client == null || lastUsed > idleSince) {
+                return false;
+            }
+
+            client = null;
+            return true;
+        }
+    }
+}
@@ -1,12 +1,25 @@
 package sfrest;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.util.StreamUtils;
 import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
+import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.List;
@@ -17,53 +30,142 @@ import java.util.Map;
  */
 public class SFRestTemplate extends RestTemplate {
 
+    private static final Map<String, String> ERROR_FIELDS = new HashMap<>(); // Error code field -> message field
+
+    static {
+        ERROR_FIELDS.put("error", "error_description");
+        ERROR_FIELDS.put("errorCode", "message");
+    }
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ObjectMapper objectMapper;
+    private ObjectReader errorReader;
+
     public SFRestTemplate() {
+        this(new ObjectMapper());
+    }
+
+    public SFRestTemplate(ObjectMapper objectMapper) {
+        setObjectMapper(objectMapper);
         setErrorHandler(new SFResponseErrorHandler());
     }
 
-    private static class SFResponseErrorHandler extends DefaultResponseErrorHandler {
+    /**
+     * The {@link ObjectMapper} shared by the json message converters and the error handler.
+     */
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * Replaces the {@link ObjectMapper} of all json message converters and the error handler,
+     * to customize features or register modules.
+     */
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        boolean found = false;
+        for (HttpMessageConverter<?> converter : getMessageConverters()) {
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                ((MappingJackson2HttpMessageConverter) converter).setObjectMapper(objectMapper);
+                found = true;
+            }
+        }
+        if (!found) {
+            throw new IllegalStateException("No json message converter registered");
+        }
+
+        this.objectMapper = objectMapper;
+        this.errorReader = objectMapper.reader(Object.class);
+    }
+
+    // Made public so that SFRestClient can combine the default request callback with its own response extractors.
+    @Override
+    public <T> RequestCallback httpEntityCallback(Object requestBody, Type responseType) {
+        return super.httpEntityCallback(requestBody, responseType);
+    }
+
+    @Override
+    public <T> ResponseExtractor<ResponseEntity<T>> responseEntityExtractor(Type responseType) {
+        return super.responseEntityExtractor(responseType);
+    }
 
-        private final Map<String, String> errorFields = new HashMap<>();
+    /**
+     * Translates salesforce error response into exception, returns null if it's not a recognized error response.
+     *
+     * @param errors  parsed error response, either an error object or a list of them
+     * @param content raw response content
+     */
+    @SuppressWarnings("rawtypes")
+    static SFException translateError(Object errors, String content) {
+        Object error = errors;
+        if (errors instanceof List) {
+            List errorList = (List) errors;
+            error = errorList.isEmpty() ? null : errorList.get(0);
+        }
 
-        private SFResponseErrorHandler() {
-            errorFields.put("error", "error_description");
-            errorFields.put("errorCode", "message");
+        String errorKey = null;
+        if (error instanceof Map) {
+            for (String key : ERROR_FIELDS.keySet()) {
+                if (((Map) error).containsKey(key)) {
+                    errorKey = key;
+                    break;
+                }
+            }
         }
 
-        @SuppressWarnings({"rawtypes", "unchecked"})
+        if (errorKey == null) {
+            return null;
+        }
+
+        String errorCode = (String) ((Map) error).get(errorKey);
+        String message = (String) ((Map) error).get(ERROR_FIELDS.get(errorKey));
+        switch (errorCode) {
+            case "INVALID_SESSION_ID":
+                return new TokenException(errorCode, message, content);
+            case "REQUEST_LIMIT_EXCEEDED":
+                return new ApiLimitException(errorCode, message, content);
+            default:
+                return new SFException(errorCode, message, content);
+        }
+    }
+
+    private class SFResponseErrorHandler extends DefaultResponseErrorHandler {
+
         @Override
         public void handleError(ClientHttpResponse response) throws IOException {
-            String content = StreamUtils.copyToString(response.getBody(), Charset.defaultCharset());
-            Object errors = new ObjectMapper().readValue(content, Object.class);
-
-            Map<String, String> error;
-            if (errors instanceof List) {
-                error = (Map) ((List) errors).get(0);
-            } else {
-                error = (Map) errors;
+            // Salesforce errors are always json, which Jackson decodes from the raw bytes regardless of the platform charset.
+            byte[] body = StreamUtils.copyToByteArray(response.getBody());
+
+            SFException exception = null;
+            try {
+                exception = translateError(errorReader.readValue(body), new String(body, UTF_8));
+            } catch (JsonProcessingException e) {
+                // Not a salesforce error, e.g. an html page from a proxy.
             }
 
-            String errorKey = null;
-            if (error != null) {
-                for (String key : errorFields.keySet()) {
-                    if (error.containsKey(key)) {
-                        errorKey = key;
-                        break;
-                    }
-                }
+            if (exception == null) {
+                throw statusCodeException(response, body);
             }
 
-            if (errorKey == null) {
-                super.handleError(response);
-            } else {
-                String errorCode = error.get(errorKey);
-                String message = error.get(errorFields.get(errorKey));
-                switch (errorCode) {
-                    case "INVALID_SESSION_ID":
-                        throw new TokenException(errorCode, message, content);
-                    default:
-                        throw new SFException(errorCode, message, content);
-                }
+            if (response instanceof MetricsInterceptor.MeteredResponse) {
+                ((MetricsInterceptor.MeteredResponse) response).setErrorCode(exception.getErrorCode());
+            }
+            throw exception;
+        }
+
+        // Same as the default handler, which can't be used as the body has been consumed already.
+        private RestClientException statusCodeException(ClientHttpResponse response, byte[] body) throws IOException {
+            HttpStatus statusCode = response.getStatusCode();
+            MediaType contentType = response.getHeaders().getContentType();
+            Charset charset = contentType != null && contentType.getCharSet() != null ? contentType.getCharSet() : UTF_8;
+
+            switch (statusCode.series()) {
+                case CLIENT_ERROR:
+                    return new HttpClientErrorException(statusCode, response.getStatusText(), response.getHeaders(), body, charset);
+                case SERVER_ERROR:
+                    return new HttpServerErrorException(statusCode, response.getStatusText(), response.getHeaders(), body, charset);
+                default:
+                    return new RestClientException("Unknown status code [" + statusCode + "]");
             }
         }
     }
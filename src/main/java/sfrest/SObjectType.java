@@ -0,0 +1,19 @@
+package sfrest;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Names the sObject type a class binds to, e.g. {@code @SObjectType("Account")}.
+ * <p>
+ * Without this annotation the simple class name is used.
+ * </p>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SObjectType {
+
+    String value();
+}
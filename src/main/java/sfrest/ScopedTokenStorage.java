@@ -0,0 +1,16 @@
+package sfrest;
+
+/**
+ * Token storage holding a separate token per scope, such as the current http session.
+ * <p>
+ * {@link SFRestClient} serializes token requests per scope instead of per client, so logins of different sessions
+ * don't wait for each other.
+ * </p>
+ */
+public interface ScopedTokenStorage extends TokenStorage {
+
+    /**
+     * Key of the scope of the current thread, equal for all threads sharing the stored token.
+     */
+    Object getScope();
+}
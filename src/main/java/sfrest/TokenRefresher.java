@@ -0,0 +1,123 @@
+package sfrest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the token of a client shortly before it's expected to expire, so requests don't wait for the token endpoint.
+ * <p>
+ * Expiry is estimated from {@link Token#getIssueTime()} plus the session lifetime, which should match the session
+ * timeout configured in the org (2 hours by default). Only tokens with a refresh token are refreshed.
+ * </p>
+ * <p>
+ * The token is read from the client's {@link TokenStorage} in a background thread, so this doesn't work with storages
+ * bound to the current request, such as {@link sfrest.web.SessionTokenStorage}.
+ * </p>
+ */
+public class TokenRefresher implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRefresher.class);
+
+    private final SFRestClient client;
+    private long sessionLifetime = TimeUnit.HOURS.toMillis(2);
+    private long refreshMargin = TimeUnit.MINUTES.toMillis(5);
+    private long checkInterval = TimeUnit.MINUTES.toMillis(1);
+
+    private ScheduledExecutorService scheduler;
+
+    public TokenRefresher(SFRestClient client) {
+        this.client = client;
+    }
+
+    public long getSessionLifetime() {
+        return sessionLifetime;
+    }
+
+    /**
+     * Session lifetime in milliseconds, defaults to 2 hours.
+     */
+    public void setSessionLifetime(long sessionLifetime) {
+        this.sessionLifetime = sessionLifetime;
+    }
+
+    public long getRefreshMargin() {
+        return refreshMargin;
+    }
+
+    /**
+     * How long before the estimated expiry the token is refreshed, in milliseconds, defaults to 5 minutes.
+     */
+    public void setRefreshMargin(long refreshMargin) {
+        this.refreshMargin = refreshMargin;
+    }
+
+    public long getCheckInterval() {
+        return checkInterval;
+    }
+
+    /**
+     * How often the token is checked, in milliseconds, defaults to 1 minute. Should be well below the refresh margin.
+     */
+    public void setCheckInterval(long checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sfrest-token-refresher-");
+        threadFactory.setDaemon(true);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                refreshIfExpiring();
+            }
+        }, 0, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+
+    /**
+     * Refreshes the stored token if it's due, returns true if it has been refreshed.
+     */
+    public boolean refreshIfExpiring() {
+        try {
+            Token token = client.getTokenStorage().getToken();
+            if (token == null || token.getIssueTime() == null || !client.getTokenProvider().isRefreshable(token)) {
+                return false;
+            }
+
+            long refreshTime = token.getIssueTime().getTime() + sessionLifetime - refreshMargin;
+            if (System.currentTimeMillis() < refreshTime) {
+                return false;
+            }
+
+            client.refreshToken(token);
+            return true;
+        } catch (RuntimeException e) {
+            // Keep the schedule alive, an expired token will still be renewed on demand.
+            logger.warn("Failed to refresh token", e);
+            return false;
+        }
+    }
+}
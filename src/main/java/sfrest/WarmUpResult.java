@@ -0,0 +1,70 @@
+package sfrest;
+
+import org.springframework.core.style.ToStringCreator;
+
+/**
+ * Time spent in each step of {@link SFRestClient#warmUp(int)}, in milliseconds.
+ */
+public class WarmUpResult {
+
+    private final long tokenMillis;
+    private final long connectionMillis;
+    private final int connections;
+    private final long codecMillis;
+    private final long metadataMillis;
+
+    public WarmUpResult(long tokenMillis, long connectionMillis, int connections, long codecMillis, long metadataMillis) {
+        this.tokenMillis = tokenMillis;
+        this.connectionMillis = connectionMillis;
+        this.connections = connections;
+        this.codecMillis = codecMillis;
+        this.metadataMillis = metadataMillis;
+    }
+
+    /**
+     * Time to get the token, including the login if there was no stored token.
+     */
+    public long getTokenMillis() {
+        return tokenMillis;
+    }
+
+    /**
+     * Time of the concurrent requests opening connections to the instance.
+     */
+    public long getConnectionMillis() {
+        return connectionMillis;
+    }
+
+    /**
+     * Idle connections to the instance in the pool after warm-up, or -1 if the client has no connection pool.
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    public long getCodecMillis() {
+        return codecMillis;
+    }
+
+    /**
+     * Time to preload the metadata cache, 0 if the client has none.
+     */
+    public long getMetadataMillis() {
+        return metadataMillis;
+    }
+
+    public long getTotalMillis() {
+        return tokenMillis + connectionMillis + codecMillis + metadataMillis;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringCreator(this)
+                .append("tokenMillis", tokenMillis)
+                .append("connectionMillis", connectionMillis)
+                .append("connections", connections)
+                .append("codecMillis", codecMillis)
+                .append("metadataMillis", metadataMillis)
+                .toString();
+    }
+}
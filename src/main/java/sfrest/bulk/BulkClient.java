@@ -0,0 +1,354 @@
+package sfrest.bulk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.ResponseExtractor;
+import sfrest.SFException;
+import sfrest.SFRestClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Client of the <a href="https://developer.salesforce.com/docs/atlas.en-us.api_asynch.meta/api_asynch/asynch_api_intro.htm">Bulk API 2.0</a>,
+ * for loading and extracting large data sets as CSV.
+ * <p>
+ * Requests go through the given {@link SFRestClient}, sharing its token provider, token storage and connections.
+ * CSV data is streamed in both directions: uploads are split into parts as they are read, and results are copied
+ * to the target as they are downloaded.
+ * </p>
+ * <p>
+ * A Bulk API 2.0 job accepts a single upload, so data larger than {@link #setMaxPartBytes(long) max part size} is
+ * loaded through several jobs, one per part.
+ * </p>
+ */
+public class BulkClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkClient.class);
+
+    public static final String BASE_URI_JOBS = "/services/data/v47.0/jobs";
+
+    private static final ParameterizedTypeReference<JobInfo> TYPE_JOB_INFO = new ParameterizedTypeReference<JobInfo>() {
+    };
+
+    private final SFRestClient client;
+    private long maxPartBytes = 100 * 1024 * 1024;
+    private long minPollInterval = 1000;
+    private long maxPollInterval = 30000;
+    private String queryLineEnding = JobInfo.LINE_ENDING_LF;
+
+    public BulkClient(SFRestClient client) {
+        this.client = client;
+    }
+
+    public long getMaxPartBytes() {
+        return maxPartBytes;
+    }
+
+    /**
+     * Size from which uploaded data is split into another part, defaults to 100 MB. Parts are split at record
+     * boundaries, so a part exceeds this by up to one record; the API accepts up to 150 MB per job.
+     */
+    public void setMaxPartBytes(long maxPartBytes) {
+        this.maxPartBytes = maxPartBytes;
+    }
+
+    public long getMinPollInterval() {
+        return minPollInterval;
+    }
+
+    /**
+     * Initial interval of polling job state in milliseconds, defaults to 1 second.
+     */
+    public void setMinPollInterval(long minPollInterval) {
+        this.minPollInterval = minPollInterval;
+    }
+
+    public long getMaxPollInterval() {
+        return maxPollInterval;
+    }
+
+    /**
+     * Longest interval of polling job state in milliseconds, defaults to 30 seconds.
+     */
+    public void setMaxPollInterval(long maxPollInterval) {
+        this.maxPollInterval = maxPollInterval;
+    }
+
+    public String getQueryLineEnding() {
+        return queryLineEnding;
+    }
+
+    /**
+     * Line ending of query results, {@link JobInfo#LINE_ENDING_LF} (default) or {@link JobInfo#LINE_ENDING_CRLF}.
+     */
+    public void setQueryLineEnding(String queryLineEnding) {
+        this.queryLineEnding = queryLineEnding;
+    }
+
+    /**
+     * Loads CSV data into the object, creating one job per part, and waits for all jobs to finish.
+     *
+     * @param externalIdFieldName required for upserts, otherwise null
+     * @param csv                 CSV data with a header line of field names, read to the end but not closed; the
+     *                            line ending of the jobs is that of the header line
+     * @return final state of the jobs, in the order of the parts
+     */
+    public List<JobInfo> ingest(String object, BulkOperation operation, String externalIdFieldName, InputStream csv) {
+        final CsvSplitter splitter = new CsvSplitter(csv);
+        List<JobInfo> jobs = new ArrayList<>();
+
+        try {
+            while (splitter.hasMore()) {
+                JobInfo job = createIngestJob(object, operation, externalIdFieldName, splitter.getLineEnding());
+                jobs.add(job);
+
+                upload(job.getId(), new StreamingHttpOutputMessage.Body() {
+                    @Override
+                    public void writeTo(OutputStream out) throws IOException {
+                        long bytes = splitter.writePart(out, maxPartBytes);
+                        logger.debug("Uploaded part of {} bytes", bytes);
+                    }
+                });
+                closeJob(job.getId());
+            }
+        } catch (IOException e) {
+            for (JobInfo job : jobs) {
+                abortQuietly(job);
+            }
+            throw new SFException("Failed to read CSV data", e);
+        } catch (RuntimeException e) {
+            for (JobInfo job : jobs) {
+                abortQuietly(job);
+            }
+            throw e;
+        }
+
+        List<JobInfo> results = new ArrayList<>();
+        for (JobInfo job : jobs) {
+            results.add(waitForIngestJob(job.getId()));
+        }
+
+        return results;
+    }
+
+    public JobInfo createIngestJob(String object, BulkOperation operation, String externalIdFieldName) {
+        return createIngestJob(object, operation, externalIdFieldName, JobInfo.LINE_ENDING_LF);
+    }
+
+    /**
+     * @param lineEnding line ending of the uploaded data, {@link JobInfo#LINE_ENDING_LF} or {@link JobInfo#LINE_ENDING_CRLF}
+     */
+    public JobInfo createIngestJob(String object, BulkOperation operation, String externalIdFieldName, String lineEnding) {
+        if (operation == BulkOperation.QUERY || operation == BulkOperation.QUERY_ALL) {
+            throw new IllegalArgumentException("Not an ingest operation: " + operation);
+        }
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("object", object);
+        request.put("operation", operation.value());
+        request.put("contentType", "CSV");
+        request.put("lineEnding", lineEnding);
+        if (externalIdFieldName != null) {
+            request.put("externalIdFieldName", externalIdFieldName);
+        }
+
+        JobInfo job = client.execute(BASE_URI_JOBS + "/ingest", HttpMethod.POST, request, TYPE_JOB_INFO);
+        logger.debug("Ingest job created: {}", job);
+        return job;
+    }
+
+    /**
+     * Uploads the job data, streamed from the given body; a job accepts a single upload.
+     */
+    public void upload(String jobId, StreamingHttpOutputMessage.Body csv) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.valueOf("text/csv"));
+
+        client.executeStreaming(BASE_URI_JOBS + "/ingest/{id}/batches", HttpMethod.PUT, headers, csv, null, jobId);
+    }
+
+    /**
+     * Marks the upload as complete, so that salesforce starts processing the job.
+     */
+    public JobInfo closeJob(String jobId) {
+        return setState("ingest", jobId, JobInfo.STATE_UPLOAD_COMPLETE);
+    }
+
+    public JobInfo abortIngestJob(String jobId) {
+        return setState("ingest", jobId, JobInfo.STATE_ABORTED);
+    }
+
+    public JobInfo getIngestJob(String jobId) {
+        return client.execute(BASE_URI_JOBS + "/ingest/{id}", HttpMethod.GET, null, TYPE_JOB_INFO, jobId);
+    }
+
+    public JobInfo waitForIngestJob(String jobId) {
+        return waitFor("ingest", jobId);
+    }
+
+    /**
+     * Copies a result set of the ingest job to the output stream as it's downloaded.
+     */
+    public void writeResults(String jobId, ResultType type, final OutputStream out) {
+        client.execute(BASE_URI_JOBS + "/ingest/{id}/{results}", HttpMethod.GET, csvRequest(), new ResponseExtractor<Void>() {
+            @Override
+            public Void extractData(ClientHttpResponse response) throws IOException {
+                StreamUtils.copy(response.getBody(), out);
+                return null;
+            }
+        }, jobId, type.path());
+    }
+
+    /**
+     * Downloads a result set of the ingest job into the file, replacing it if it exists.
+     */
+    public void writeResults(String jobId, ResultType type, Path file) {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            writeResults(jobId, type, out);
+        } catch (IOException e) {
+            throw new SFException("Failed to write results to " + file, e);
+        }
+    }
+
+    public JobInfo createQueryJob(String soql, boolean includeDeleted) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("operation", includeDeleted ? BulkOperation.QUERY_ALL.value() : BulkOperation.QUERY.value());
+        request.put("query", soql);
+        request.put("contentType", "CSV");
+        request.put("lineEnding", queryLineEnding);
+
+        JobInfo job = client.execute(BASE_URI_JOBS + "/query", HttpMethod.POST, request, TYPE_JOB_INFO);
+        logger.debug("Query job created: {}", job);
+        return job;
+    }
+
+    public JobInfo getQueryJob(String jobId) {
+        return client.execute(BASE_URI_JOBS + "/query/{id}", HttpMethod.GET, null, TYPE_JOB_INFO, jobId);
+    }
+
+    public JobInfo abortQueryJob(String jobId) {
+        return setState("query", jobId, JobInfo.STATE_ABORTED);
+    }
+
+    public JobInfo waitForQueryJob(String jobId) {
+        return waitFor("query", jobId);
+    }
+
+    /**
+     * Copies all result pages of the completed query job to the output stream as one CSV, with a single header line.
+     */
+    public void writeQueryResults(String jobId, final OutputStream out) {
+        String locator = null;
+        boolean first = true;
+        do {
+            String uri = BASE_URI_JOBS + "/query/{id}/results" + (locator != null ? "?locator={locator}" : "");
+            final boolean skipHeader = !first;
+            locator = client.execute(uri, HttpMethod.GET, csvRequest(), new ResponseExtractor<String>() {
+                @Override
+                public String extractData(ClientHttpResponse response) throws IOException {
+                    InputStream in = response.getBody();
+                    if (skipHeader) {
+                        skipLine(in);
+                    }
+                    StreamUtils.copy(in, out);
+
+                    String next = response.getHeaders().getFirst("Sforce-Locator");
+                    return next == null || next.isEmpty() || next.equals("null") ? null : next;
+                }
+            }, jobId, locator);
+            first = false;
+        } while (locator != null);
+    }
+
+    /**
+     * Runs the query as a bulk job and downloads the results into the file, replacing it if it exists.
+     */
+    public JobInfo query(String soql, Path file) {
+        JobInfo job = waitForQueryJob(createQueryJob(soql, false).getId());
+        if (!JobInfo.STATE_JOB_COMPLETE.equals(job.getState())) {
+            throw new SFException("Query job " + job.getId() + " ended as " + job.getState() + ": " + job.getErrorMessage());
+        }
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            writeQueryResults(job.getId(), out);
+        } catch (IOException e) {
+            throw new SFException("Failed to write results to " + file, e);
+        }
+
+        return job;
+    }
+
+    private JobInfo setState(String jobType, String jobId, String state) {
+        return client.execute(BASE_URI_JOBS + "/" + jobType + "/{id}", HttpMethod.PATCH,
+                Collections.singletonMap("state", state), TYPE_JOB_INFO, jobId);
+    }
+
+    /**
+     * Polls the job until it's finished. The interval starts at the min poll interval and grows by half while the job
+     * makes no progress, up to the max poll interval; progress resets it.
+     */
+    private JobInfo waitFor(String jobType, String jobId) {
+        long interval = minPollInterval;
+        long processed = -1;
+
+        while (true) {
+            JobInfo job = client.execute(BASE_URI_JOBS + "/" + jobType + "/{id}", HttpMethod.GET, null, TYPE_JOB_INFO, jobId);
+            if (job.isFinished()) {
+                logger.debug("Job finished: {}", job);
+                return job;
+            }
+
+            if (job.getNumberRecordsProcessed() != processed) {
+                processed = job.getNumberRecordsProcessed();
+                interval = minPollInterval;
+            } else {
+                interval = Math.min(interval + interval / 2, maxPollInterval);
+            }
+
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SFException("Interrupted while waiting for job " + jobId, e);
+            }
+        }
+    }
+
+    private void abortQuietly(JobInfo job) {
+        try {
+            abortIngestJob(job.getId());
+        } catch (RuntimeException e) {
+            logger.warn("Failed to abort job {}", job.getId(), e);
+        }
+    }
+
+    private static HttpEntity<?> csvRequest() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Collections.singletonList(MediaType.valueOf("text/csv")));
+        return new HttpEntity<>(headers);
+    }
+
+    private static void skipLine(InputStream in) throws IOException {
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            // Header lines are field names, without quoted line breaks.
+        }
+    }
+}
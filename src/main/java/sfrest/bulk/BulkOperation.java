@@ -0,0 +1,28 @@
+package sfrest.bulk;
+
+/**
+ * Operations of Bulk API 2.0 jobs.
+ */
+public enum BulkOperation {
+
+    INSERT("insert"),
+    UPDATE("update"),
+    UPSERT("upsert"),
+    DELETE("delete"),
+    HARD_DELETE("hardDelete"),
+    QUERY("query"),
+    QUERY_ALL("queryAll");
+
+    private final String value;
+
+    BulkOperation(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Name of the operation in the API.
+     */
+    public String value() {
+        return value;
+    }
+}
@@ -0,0 +1,121 @@
+package sfrest.bulk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Splits a CSV stream into parts at record boundaries, each part starting with the header line.
+ * <p>
+ * Line breaks inside quoted fields are not boundaries. Data is copied through a fixed buffer, parts are never held
+ * in memory as a whole.
+ * </p>
+ */
+class CsvSplitter {
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[64 * 1024];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private byte[] header;
+
+    CsvSplitter(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Whether there are records left after the header.
+     */
+    boolean hasMore() throws IOException {
+        readHeader();
+        return fill();
+    }
+
+    /**
+     * Line ending of the header line, {@link JobInfo#LINE_ENDING_CRLF} or {@link JobInfo#LINE_ENDING_LF}.
+     */
+    String getLineEnding() throws IOException {
+        readHeader();
+        return header.length > 1 && header[header.length - 2] == '\r' ? JobInfo.LINE_ENDING_CRLF : JobInfo.LINE_ENDING_LF;
+    }
+
+    /**
+     * Writes the header followed by records, until the first record boundary from {@code maxBytes} on, or the end.
+     *
+     * @return number of bytes written, including the header
+     */
+    long writePart(OutputStream out, long maxBytes) throws IOException {
+        readHeader();
+        out.write(header);
+
+        long written = header.length;
+        boolean quoted = false;
+        while (fill()) {
+            for (int i = pos; i < limit; i++) {
+                byte b = buffer[i];
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted && written + (i + 1 - pos) >= maxBytes) {
+                    out.write(buffer, pos, i + 1 - pos);
+                    written += i + 1 - pos;
+                    pos = i + 1;
+                    return written;
+                }
+            }
+
+            out.write(buffer, pos, limit - pos);
+            written += limit - pos;
+            pos = limit;
+        }
+
+        return written;
+    }
+
+    private void readHeader() throws IOException {
+        if (header != null) {
+            return;
+        }
+
+        ByteArrayOutputStream headerOut = new ByteArrayOutputStream();
+        boolean quoted = false;
+        while (fill()) {
+            for (int i = pos; i < limit; i++) {
+                byte b = buffer[i];
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    headerOut.write(buffer, pos, i + 1 - pos);
+                    pos = i + 1;
+                    header = headerOut.toByteArray();
+                    return;
+                }
+            }
+
+            headerOut.write(buffer, pos, limit - pos);
+            pos = limit;
+        }
+
+        // Header only, without a line break.
+        headerOut.write('\n');
+        header = headerOut.toByteArray();
+    }
+
+    /**
+     * Makes sure the buffer has unread bytes, returns false at the end of the stream.
+     */
+    private boolean fill() throws IOException {
+        while (pos == limit && !eof) {
+            int n = in.read(buffer);
+            if (n == -1) {
+                eof = true;
+            } else {
+                pos = 0;
+                limit = n;
+            }
+        }
+
+        return pos < limit;
+    }
+}
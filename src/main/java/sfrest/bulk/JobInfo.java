@@ -0,0 +1,132 @@
+package sfrest.bulk;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.springframework.core.style.ToStringCreator;
+
+/**
+ * State of a Bulk API 2.0 ingest or query job.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class JobInfo {
+
+    public static final String STATE_OPEN = "Open";
+    public static final String STATE_UPLOAD_COMPLETE = "UploadComplete";
+    public static final String STATE_IN_PROGRESS = "InProgress";
+    public static final String STATE_JOB_COMPLETE = "JobComplete";
+    public static final String STATE_FAILED = "Failed";
+    public static final String STATE_ABORTED = "Aborted";
+
+    public static final String LINE_ENDING_LF = "LF";
+    public static final String LINE_ENDING_CRLF = "CRLF";
+
+    private String id;
+    private String object;
+    private String operation;
+    private String state;
+    private String externalIdFieldName;
+    private String contentType;
+    private String lineEnding;
+    private String errorMessage;
+    private long numberRecordsProcessed;
+    private long numberRecordsFailed;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getObject() {
+        return object;
+    }
+
+    public void setObject(String object) {
+        this.object = object;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getExternalIdFieldName() {
+        return externalIdFieldName;
+    }
+
+    public void setExternalIdFieldName(String externalIdFieldName) {
+        this.externalIdFieldName = externalIdFieldName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getLineEnding() {
+        return lineEnding;
+    }
+
+    public void setLineEnding(String lineEnding) {
+        this.lineEnding = lineEnding;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public long getNumberRecordsProcessed() {
+        return numberRecordsProcessed;
+    }
+
+    public void setNumberRecordsProcessed(long numberRecordsProcessed) {
+        this.numberRecordsProcessed = numberRecordsProcessed;
+    }
+
+    public long getNumberRecordsFailed() {
+        return numberRecordsFailed;
+    }
+
+    public void setNumberRecordsFailed(long numberRecordsFailed) {
+        this.numberRecordsFailed = numberRecordsFailed;
+    }
+
+    /**
+     * Whether the job has reached a final state: complete, failed or aborted.
+     */
+    public boolean isFinished() {
+        return STATE_JOB_COMPLETE.equals(state) || STATE_FAILED.equals(state) || STATE_ABORTED.equals(state);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringCreator(this)
+                .append("id", id)
+                .append("object", object)
+                .append("operation", operation)
+                .append("state", state)
+                .append("numberRecordsProcessed", numberRecordsProcessed)
+                .append("numberRecordsFailed", numberRecordsFailed)
+                .append("errorMessage", errorMessage)
+                .toString();
+    }
+}
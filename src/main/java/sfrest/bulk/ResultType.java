@@ -0,0 +1,32 @@
+package sfrest.bulk;
+
+/**
+ * Result sets of a completed ingest job, each downloaded as CSV.
+ */
+public enum ResultType {
+
+    /**
+     * Records processed successfully, with {@code sf__Id} and {@code sf__Created} columns added.
+     */
+    SUCCESSFUL("successfulResults"),
+
+    /**
+     * Records that failed, with {@code sf__Id} and {@code sf__Error} columns added.
+     */
+    FAILED("failedResults"),
+
+    /**
+     * Records not processed because the job was aborted or failed.
+     */
+    UNPROCESSED("unprocessedrecords");
+
+    private final String path;
+
+    ResultType(String path) {
+        this.path = path;
+    }
+
+    String path() {
+        return path;
+    }
+}
@@ -0,0 +1,65 @@
+package sfrest.sync;
+
+import sfrest.SFException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Properties;
+
+/**
+ * Keeps watermarks in a properties file, as milliseconds since the epoch keyed by sObject type.
+ * <p>
+ * The file is rewritten on every save, through a temporary file so an interruption never leaves it partial.
+ * </p>
+ */
+public class FileWatermarkStore implements WatermarkStore {
+
+    private final Path file;
+    private Properties watermarks;
+
+    public FileWatermarkStore(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized Date getWatermark(String sObjectType) {
+        String watermark = load().getProperty(sObjectType);
+        return watermark != null ? new Date(Long.parseLong(watermark)) : null;
+    }
+
+    @Override
+    public synchronized void saveWatermark(String sObjectType, Date watermark) {
+        Properties properties = load();
+        properties.setProperty(sObjectType, Long.toString(watermark.getTime()));
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, null);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new SFException("Failed to save watermarks to " + file, e);
+        }
+    }
+
+    private Properties load() {
+        if (watermarks == null) {
+            watermarks = new Properties();
+            if (Files.exists(file)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    watermarks.load(in);
+                } catch (IOException e) {
+                    throw new SFException("Failed to read watermarks from " + file, e);
+                }
+            }
+        }
+
+        return watermarks;
+    }
+}
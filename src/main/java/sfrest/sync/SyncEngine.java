@@ -0,0 +1,286 @@
+package sfrest.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.StringUtils;
+import sfrest.Query;
+import sfrest.QueryResult;
+import sfrest.RecordHandler;
+import sfrest.SFException;
+import sfrest.SFRestClient;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mirrors sObject records into a {@link SyncSink}, transferring only records changed since the last sync.
+ * <p>
+ * Changes are listed with the {@code /sobjects/{type}/updated} and {@code /deleted} resources between the saved
+ * watermark and now, changed records are read with {@code Id IN (...)} queries of up to batch size Ids, and the
+ * watermark is advanced to the latest date salesforce reports as covered. The cost of a sync depends on the number of
+ * changes, not on the number of records.
+ * </p>
+ * <p>
+ * Salesforce keeps changes for 30 days only. Without a watermark, one older than the max watermark age, or one older
+ * than the earliest deletion salesforce still has, all records are loaded with a query instead, and the sink removes
+ * the records it didn't receive, see {@link SyncSink#endFullLoad(String)}. The watermark is then set to the time the
+ * load started minus the clock skew. Records updated during the load may be delivered twice, which the sink must
+ * tolerate anyway.
+ * </p>
+ */
+public class SyncEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncEngine.class);
+
+    private static final String UPDATED_URI = SFRestClient.BASE_URI_REST + "/sobjects/{type}/updated/?start={start}&end={end}";
+    private static final String DELETED_URI = SFRestClient.BASE_URI_REST + "/sobjects/{type}/deleted/?start={start}&end={end}";
+    private static final long MIN_WINDOW = TimeUnit.MINUTES.toMillis(1);
+
+    private final SFRestClient client;
+    private final WatermarkStore watermarkStore;
+    private final SyncSink sink;
+    private final Map<String, List<String>> fields = new ConcurrentHashMap<>();
+
+    private int batchSize = 200;
+    private long maxWatermarkAge = TimeUnit.DAYS.toMillis(29);
+    private long clockSkew = TimeUnit.MINUTES.toMillis(5);
+
+    public SyncEngine(SFRestClient client, WatermarkStore watermarkStore, SyncSink sink) {
+        this.client = client;
+        this.watermarkStore = watermarkStore;
+        this.sink = sink;
+    }
+
+    /**
+     * Fields synced for the type; by default all fields from the describe result.
+     */
+    public void setFields(String sObjectType, List<String> fieldNames) {
+        Set<String> names = new LinkedHashSet<>();
+        names.add("Id");
+        names.addAll(fieldNames);
+        fields.put(sObjectType, new ArrayList<>(names));
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Max number of records per read and per sink call, defaults to 200; bounded by the url length of the
+     * {@code Id IN (...)} query.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getMaxWatermarkAge() {
+        return maxWatermarkAge;
+    }
+
+    /**
+     * Age from which a watermark is too old for the change resources, in milliseconds, defaults to 29 days.
+     */
+    public void setMaxWatermarkAge(long maxWatermarkAge) {
+        this.maxWatermarkAge = maxWatermarkAge;
+    }
+
+    public long getClockSkew() {
+        return clockSkew;
+    }
+
+    /**
+     * Margin for the local clock running ahead of salesforce, in milliseconds, defaults to 5 minutes.
+     */
+    public void setClockSkew(long clockSkew) {
+        this.clockSkew = clockSkew;
+    }
+
+    /**
+     * Syncs the types one after another, stopping at the first failure.
+     */
+    public List<SyncResult> syncAll(String... sObjectTypes) {
+        List<SyncResult> results = new ArrayList<>();
+        for (String type : sObjectTypes) {
+            results.add(sync(type));
+        }
+
+        return results;
+    }
+
+    /**
+     * Delivers changes of the type since its watermark to the sink, then saves the new watermark.
+     */
+    public SyncResult sync(String sObjectType) {
+        Date now = new Date();
+        Date watermark = watermarkStore.getWatermark(sObjectType);
+
+        if (watermark == null || now.getTime() - watermark.getTime() > maxWatermarkAge) {
+            return fullLoad(sObjectType, new Date(now.getTime() - clockSkew));
+        }
+
+        if (now.getTime() - watermark.getTime() < MIN_WINDOW) {
+            return new SyncResult(sObjectType, false, 0, 0, watermark); // Change resources work at minute granularity.
+        }
+
+        String start = formatDate(watermark);
+        String end = formatDate(now);
+
+        Map<String, ?> deleted = client.getMap(DELETED_URI, HttpMethod.GET, null, sObjectType, start, end);
+        Date earliestAvailable = parseDate((String) deleted.get("earliestDateAvailable"));
+        if (earliestAvailable != null && watermark.before(earliestAvailable)) {
+            logger.debug("Deletions of {} since {} no longer available", sObjectType, start);
+            return fullLoad(sObjectType, new Date(now.getTime() - clockSkew));
+        }
+
+        Map<String, ?> updated = client.getMap(UPDATED_URI, HttpMethod.GET, null, sObjectType, start, end);
+
+        @SuppressWarnings("unchecked")
+        List<String> updatedIds = (List<String>) updated.get("ids");
+        @SuppressWarnings("unchecked")
+        List<Map<String, ?>> deletedRecords = (List<Map<String, ?>>) deleted.get("deletedRecords");
+
+        // Records deleted after being updated aren't returned by the reads, undeleted ones are and must not be deleted.
+        Set<String> existing = new HashSet<>();
+        for (int i = 0; i < updatedIds.size(); i += batchSize) {
+            List<Map<String, ?>> records = read(sObjectType, updatedIds.subList(i, Math.min(i + batchSize, updatedIds.size())));
+            for (Map<String, ?> record : records) {
+                existing.add((String) record.get("Id"));
+            }
+            if (!records.isEmpty()) {
+                sink.upsert(sObjectType, records);
+            }
+        }
+
+        List<String> deletedIds = new ArrayList<>();
+        for (Map<String, ?> record : deletedRecords) {
+            String id = (String) record.get("id");
+            if (!existing.contains(id)) {
+                deletedIds.add(id);
+            }
+        }
+        for (int i = 0; i < deletedIds.size(); i += batchSize) {
+            sink.delete(sObjectType, deletedIds.subList(i, Math.min(i + batchSize, deletedIds.size())));
+        }
+
+        Date covered = earliest(parseDate((String) updated.get("latestDateCovered")), parseDate((String) deleted.get("latestDateCovered")));
+        Date newWatermark = covered != null && covered.after(watermark) ? covered : watermark;
+        watermarkStore.saveWatermark(sObjectType, newWatermark);
+
+        SyncResult result = new SyncResult(sObjectType, false, existing.size(), deletedIds.size(), newWatermark);
+        logger.debug("Synced {}", result);
+        return result;
+    }
+
+    private SyncResult fullLoad(final String sObjectType, Date newWatermark) {
+        logger.debug("No usable watermark for {}, loading all records", sObjectType);
+
+        final List<Map<String, ?>> batch = new ArrayList<>(batchSize);
+        final long[] count = new long[1];
+        RecordHandler<Map<String, ?>> handler = new RecordHandler<Map<String, ?>>() {
+            @Override
+            public void handleRecord(Map<String, ?> record) {
+                batch.add(record);
+                if (batch.size() >= batchSize) {
+                    flush(sObjectType, batch, count);
+                }
+            }
+        };
+
+        Query query = new Query("SELECT " + StringUtils.collectionToCommaDelimitedString(fields(sObjectType)) + " FROM " + sObjectType);
+        sink.beginFullLoad(sObjectType);
+        do {
+            client.query(query, handler);
+        } while (query.getNextUri() != null);
+        flush(sObjectType, batch, count);
+        sink.endFullLoad(sObjectType);
+
+        watermarkStore.saveWatermark(sObjectType, newWatermark);
+
+        SyncResult result = new SyncResult(sObjectType, true, count[0], 0, newWatermark);
+        logger.debug("Synced {}", result);
+        return result;
+    }
+
+    private void flush(String sObjectType, List<Map<String, ?>> batch, long[] count) {
+        if (!batch.isEmpty()) {
+            sink.upsert(sObjectType, new ArrayList<>(batch));
+            count[0] += batch.size();
+            batch.clear();
+        }
+    }
+
+    private List<Map<String, ?>> read(String sObjectType, Collection<String> ids) {
+        StringBuilder soql = new StringBuilder("SELECT ").append(StringUtils.collectionToCommaDelimitedString(fields(sObjectType)))
+                .append(" FROM ").append(sObjectType).append(" WHERE Id IN (");
+        boolean first = true;
+        for (String id : ids) {
+            if (!id.matches("[a-zA-Z0-9]+")) {
+                throw new IllegalArgumentException("Invalid id: " + id);
+            }
+            soql.append(first ? "'" : ",'").append(id).append('\'');
+            first = false;
+        }
+
+        Query query = new Query(soql.append(')').toString());
+        List<Map<String, ?>> records = new ArrayList<>(ids.size());
+        do {
+            QueryResult<Map<String, ?>> qResult = client.query(query);
+            records.addAll(qResult.getRecords());
+        } while (query.getNextUri() != null);
+
+        return records;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> fields(String sObjectType) {
+        List<String> names = fields.get(sObjectType);
+        if (names == null) {
+            names = new ArrayList<>();
+            for (Map<String, ?> field : (List<Map<String, ?>>) client.getSObjectMetadata(sObjectType, true).get("fields")) {
+                names.add((String) field.get("name"));
+            }
+            fields.put(sObjectType, names);
+        }
+
+        return names;
+    }
+
+    private static Date earliest(Date a, Date b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+
+        return a.before(b) ? a : b;
+    }
+
+    static String formatDate(Date date) {
+        DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+    static Date parseDate(String date) {
+        if (date == null) {
+            return null;
+        }
+
+        try {
+            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").parse(date);
+        } catch (ParseException e) {
+            throw new SFException("Invalid date: " + date, e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package sfrest.sync;
+
+import org.springframework.core.style.ToStringCreator;
+
+import java.util.Date;
+
+/**
+ * Outcome of syncing one sObject type.
+ */
+public class SyncResult {
+
+    private final String sObjectType;
+    private final boolean fullLoad;
+    private final long upserted;
+    private final long deleted;
+    private final Date watermark;
+
+    public SyncResult(String sObjectType, boolean fullLoad, long upserted, long deleted, Date watermark) {
+        this.sObjectType = sObjectType;
+        this.fullLoad = fullLoad;
+        this.upserted = upserted;
+        this.deleted = deleted;
+        this.watermark = watermark;
+    }
+
+    public String getSObjectType() {
+        return sObjectType;
+    }
+
+    /**
+     * Whether all records were loaded, because there was no usable watermark. Deletions are not counted, the sink
+     * removes records missing from the load itself.
+     */
+    public boolean isFullLoad() {
+        return fullLoad;
+    }
+
+    public long getUpserted() {
+        return upserted;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * The saved watermark, the next sync starts from it.
+     */
+    public Date getWatermark() {
+        return watermark;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringCreator(this)
+                .append("sObjectType", sObjectType)
+                .append("fullLoad", fullLoad)
+                .append("upserted", upserted)
+                .append("deleted", deleted)
+                .append("watermark", watermark)
+                .toString();
+    }
+}
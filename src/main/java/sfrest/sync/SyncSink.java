@@ -0,0 +1,33 @@
+package sfrest.sync;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives changes of synced records, in batches.
+ * <p>
+ * Delivery is at least once: a sync that fails is repeated from the last saved watermark, so the same records can
+ * be delivered again and both operations should be idempotent.
+ * </p>
+ */
+public interface SyncSink {
+
+    /**
+     * Records created or updated, with the synced fields plus {@code attributes}.
+     */
+    void upsert(String sObjectType, List<Map<String, ?>> records);
+
+    void delete(String sObjectType, List<String> ids);
+
+    /**
+     * Called before a full load delivers all records of the type, because the changes since the last sync are no
+     * longer available. A full load that fails is repeated, starting with this call again.
+     */
+    void beginFullLoad(String sObjectType);
+
+    /**
+     * Called once a full load has delivered all records of the type. Records of the type not upserted since
+     * {@link #beginFullLoad(String)} have been deleted in salesforce and must be removed.
+     */
+    void endFullLoad(String sObjectType);
+}
@@ -0,0 +1,18 @@
+package sfrest.sync;
+
+import java.util.Date;
+
+/**
+ * Persists the point in time up to which each sObject type has been synced.
+ *
+ * @see FileWatermarkStore
+ */
+public interface WatermarkStore {
+
+    /**
+     * Returns the watermark of the type, or null if it has never been synced.
+     */
+    Date getWatermark(String sObjectType);
+
+    void saveWatermark(String sObjectType, Date watermark);
+}
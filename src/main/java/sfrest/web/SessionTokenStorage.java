@@ -3,16 +3,21 @@ package sfrest.web;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import sfrest.ScopedTokenStorage;
 import sfrest.Token;
-import sfrest.TokenStorage;
 
 import javax.servlet.http.HttpSession;
 
 @Component
-public class SessionTokenStorage implements TokenStorage {
+public class SessionTokenStorage implements ScopedTokenStorage {
 
     private static final String SF_TOKEN_KEY = "SF_TOKEN";
 
+    @Override
+    public Object getScope() {
+        return currentSession().getId();
+    }
+
     @Override
     public Token getToken() {
         return (Token) currentSession().getAttribute(SF_TOKEN_KEY);
@@ -0,0 +1,132 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ApiLimitGuardTest {
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private ApiLimitGuard guard;
+    private final AtomicInteger used = new AtomicInteger();
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/sobjects", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("Sforce-Limit-Info", "api-usage=" + used.get() + "/1000");
+                StubServer.respondJson(exchange, 200, "{\"sobjects\":[]}");
+            }
+        });
+        server.handle("/services/data/v29.0/limits", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                StubServer.respondJson(exchange, 200, "{\"DailyApiRequests\":{\"Max\":1000,\"Remaining\":" + (1000 - used.get()) + "}}");
+            }
+        });
+
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()));
+        guard = new ApiLimitGuard();
+        guard.setMaxDelayMillis(200);
+        restClient.setApiLimitGuard(guard);
+    }
+
+    @After
+    public void clean() {
+        guard.destroy();
+        server.stop();
+    }
+
+    @Test
+    public void testParseLimitInfo() {
+        ApiUsage usage = ApiUsage.parse("api-usage=18/5000, per-app-api-usage=17/250(appName=sample)", 0);
+
+        assertEquals(18, usage.getUsed());
+        assertEquals(5000, usage.getMax());
+        assertEquals(4982, usage.getRemaining());
+        assertNull(ApiUsage.parse("per-app-api-usage=17/250(appName=sample)", 0));
+        assertNull(ApiUsage.parse("api-usage=abc", 0));
+    }
+
+    @Test
+    public void testUsageFromHeader() {
+        assertNull(guard.getUsage());
+
+        used.set(120);
+        restClient.listSObjects();
+
+        assertEquals(120, guard.getUsage().getUsed());
+        assertEquals(1000, guard.getUsage().getMax());
+    }
+
+    @Test
+    public void testDelay() {
+        assertEquals(0, guard.delayMillis(new ApiUsage(700, 1000, 0)));
+        assertEquals(0, guard.delayMillis(new ApiUsage(800, 1000, 0)));
+        assertEquals(100, guard.delayMillis(new ApiUsage(875, 1000, 0)));
+        assertEquals(200, guard.delayMillis(new ApiUsage(950, 1000, 0)));
+    }
+
+    @Test
+    public void testSlowDown() {
+        guard.setUsage(new ApiUsage(950, 1000, System.currentTimeMillis()));
+        guard.setRejectThreshold(1);
+
+        long start = System.currentTimeMillis();
+        restClient.listSObjects();
+
+        assertTrue(System.currentTimeMillis() - start >= 100);
+    }
+
+    @Test
+    public void testRejectAndRecoverByPolling() {
+        used.set(990);
+        restClient.listSObjects();
+
+        try {
+            restClient.listSObjects();
+            fail();
+        } catch (ApiLimitException e) {
+            assertEquals("API_USAGE_THRESHOLD", e.getErrorCode());
+        }
+
+        used.set(10);
+        ApiUsage usage = guard.pollLimits(restClient);
+
+        assertEquals(10, usage.getUsed());
+        assertSame(usage, guard.getUsage());
+        restClient.getMap(SFRestClient.BASE_URI_REST + "/sobjects", HttpMethod.GET, null);
+    }
+
+    @Test
+    public void testRejectionEndsWhenUsageExpires() throws InterruptedException {
+        guard.setUsageTimeToLive(100);
+        used.set(990);
+        restClient.listSObjects();
+
+        try {
+            restClient.listSObjects();
+            fail();
+        } catch (ApiLimitException e) {
+            assertEquals("API_USAGE_THRESHOLD", e.getErrorCode());
+        }
+
+        Thread.sleep(150);
+        used.set(10);
+        restClient.listSObjects();
+
+        assertEquals(10, guard.getUsage().getUsed());
+        restClient.listSObjects();
+    }
+}
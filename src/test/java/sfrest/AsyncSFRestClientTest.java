@@ -0,0 +1,133 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncSFRestClientTest {
+
+    private static final int MAX_IN_FLIGHT = 3;
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private AsyncSFRestClient asyncClient;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/sobjects/Account", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int now = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), now));
+                }
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+
+                String path = exchange.getRequestURI().getPath();
+                if (path.endsWith("/bad")) {
+                    StubServer.respondJson(exchange, 404, "[{\"errorCode\":\"NOT_FOUND\",\"message\":\"The requested resource does not exist\"}]");
+                } else {
+                    StubServer.respondJson(exchange, 200, "{\"Id\":\"" + path.substring(path.lastIndexOf('/') + 1) + "\"}");
+                }
+            }
+        });
+
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()));
+        asyncClient = new AsyncSFRestClient(restClient, MAX_IN_FLIGHT);
+    }
+
+    @After
+    public void clean() {
+        asyncClient.destroy();
+        server.stop();
+    }
+
+    @Test
+    public void testInFlightLimit() throws Exception {
+        List<ListenableFuture<Map<String, ?>>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(asyncClient.getSObject("Account", "001" + i));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals("001" + i, futures.get(i).get().get("Id"));
+        }
+        assertTrue(maxRunning.get() <= MAX_IN_FLIGHT);
+        assertEquals(0, asyncClient.getPendingCount());
+    }
+
+    @Test
+    public void testErrorDelivered() throws InterruptedException {
+        try {
+            asyncClient.getSObject("Account", "bad").get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("NOT_FOUND", ((SFException) e.getCause()).getErrorCode());
+        }
+    }
+
+    @Test
+    public void testRejectionDelivered() throws Exception {
+        asyncClient.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException("Full");
+            }
+        });
+
+        try {
+            asyncClient.getSObject("Account", "0010").get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("Full", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testDestroyFailsPendingRequests() throws Exception {
+        List<ListenableFuture<Map<String, ?>>> futures = new ArrayList<>();
+        for (int i = 0; i < MAX_IN_FLIGHT + 2; i++) {
+            futures.add(asyncClient.getSObject("Account", "001" + i));
+        }
+        asyncClient.destroy();
+
+        for (int i = MAX_IN_FLIGHT; i < futures.size(); i++) {
+            try {
+                futures.get(i).get(1, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+        }
+
+        try {
+            asyncClient.getSObject("Account", "0019").get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+}
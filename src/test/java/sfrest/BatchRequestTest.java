@@ -0,0 +1,136 @@
+package sfrest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BatchRequestTest {
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private final List<List<Map<String, ?>>> received = new ArrayList<>();
+    private volatile int failingRoundTrip; // 1-based, 0 for none
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v34.0/composite/batch", new HttpHandler() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void handle(HttpExchange exchange) throws IOException {
+                Map<String, ?> body = new ObjectMapper().readValue(exchange.getRequestBody(), Map.class);
+                List<Map<String, ?>> subrequests = (List<Map<String, ?>>) body.get("batchRequests");
+                received.add(subrequests);
+                if (received.size() == failingRoundTrip) {
+                    StubServer.respondJson(exchange, 500, "[{\"errorCode\":\"UNKNOWN_EXCEPTION\",\"message\":\"An unexpected error occurred\"}]");
+                    return;
+                }
+
+                StringBuilder json = new StringBuilder("{\"hasErrors\":false,\"results\":[");
+                for (int i = 0; i < subrequests.size(); i++) {
+                    String url = (String) subrequests.get(i).get("url");
+                    json.append(i > 0 ? "," : "");
+                    if (url.contains("/query/")) {
+                        json.append("{\"statusCode\":200,\"result\":{\"totalSize\":1,\"done\":true,\"records\":[{\"Id\":\"001A\",\"Name\":\"Acme\"}]}}");
+                    } else if (url.endsWith("/missing")) {
+                        json.append("{\"statusCode\":404,\"result\":[{\"errorCode\":\"NOT_FOUND\",\"message\":\"The requested resource does not exist\"}]}");
+                    } else {
+                        json.append("{\"statusCode\":200,\"result\":{\"url\":\"").append(url).append("\"}}");
+                    }
+                }
+                StubServer.respondJson(exchange, 200, json.append("]}").toString());
+            }
+        });
+
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()));
+    }
+
+    @After
+    public void clean() {
+        server.stop();
+    }
+
+    @Test
+    public void testBatch() {
+        BatchRequest batch = restClient.batch();
+        BatchResult<Map<String, ?>> account = batch.getSObject("Account", "001A", "Name");
+        BatchResult<Map<String, ?>> missing = batch.getMap(SFRestClient.BASE_URI_REST + "/sobjects/Account/missing");
+        BatchResult<QueryResult<Map<String, ?>>> query = batch.query(new Query("SELECT Id, Name FROM Account"));
+        assertFalse(account.isCompleted());
+
+        batch.execute();
+
+        assertEquals(1, received.size());
+        assertEquals("GET", received.get(0).get(0).get("method"));
+        assertEquals("/services/data/v34.0/sobjects/Account/001A?fields=Name", account.get().get("url"));
+        assertEquals(200, account.getStatusCode());
+        assertEquals("Acme", query.get().getRecords().get(0).get("Name"));
+
+        assertFalse(missing.isSuccess());
+        assertEquals(404, missing.getStatusCode());
+        try {
+            missing.get();
+            fail();
+        } catch (SFException e) {
+            assertEquals("NOT_FOUND", e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testSplitLargeBatch() {
+        BatchRequest batch = restClient.batch();
+        List<BatchResult<Map<String, ?>>> results = new ArrayList<>();
+        for (int i = 0; i < BatchRequest.MAX_SUBREQUESTS + 5; i++) {
+            results.add(batch.getSObject("Account", "001" + i));
+        }
+        batch.execute();
+
+        assertEquals(2, received.size());
+        assertEquals(BatchRequest.MAX_SUBREQUESTS, received.get(0).size());
+        assertEquals(5, received.get(1).size());
+        assertEquals("/services/data/v34.0/sobjects/Account/00129", results.get(29).get().get("url"));
+    }
+
+    @Test
+    public void testFailedRoundTripFailsRemainingResults() {
+        failingRoundTrip = 2;
+        BatchRequest batch = restClient.batch();
+        List<BatchResult<Map<String, ?>>> results = new ArrayList<>();
+        for (int i = 0; i < 2 * BatchRequest.MAX_SUBREQUESTS + 5; i++) {
+            results.add(batch.getSObject("Account", "001" + i));
+        }
+
+        try {
+            batch.execute();
+            fail();
+        } catch (SFException e) {
+            assertEquals("UNKNOWN_EXCEPTION", e.getErrorCode());
+        }
+
+        assertEquals(2, received.size());
+        assertTrue(results.get(0).isSuccess());
+        for (BatchResult<Map<String, ?>> result : results.subList(BatchRequest.MAX_SUBREQUESTS, results.size())) {
+            assertTrue(result.isCompleted());
+            assertEquals("UNKNOWN_EXCEPTION", result.getError().getErrorCode());
+        }
+
+        assertEquals(0, batch.size());
+        batch.execute();
+        assertEquals(2, received.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testApexNotBatched() {
+        restClient.batch().getMap(SFRestClient.BASE_URI_APEX + "/echo");
+    }
+}
@@ -0,0 +1,196 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+import sfrest.bulk.BulkClient;
+import sfrest.bulk.BulkOperation;
+import sfrest.bulk.JobInfo;
+import sfrest.bulk.ResultType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BulkClientTest {
+
+    private static final String JOBS = "/services/data/v47.0/jobs/";
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private BulkClient bulkClient;
+
+    private final AtomicInteger jobCount = new AtomicInteger();
+    private final Map<String, String> uploads = new ConcurrentHashMap<>();
+    private final Map<String, String> states = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> polls = new ConcurrentHashMap<>();
+    private final Map<String, String> requests = new ConcurrentHashMap<>();
+    private volatile boolean failUploads;
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle(JOBS, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String[] path = exchange.getRequestURI().getPath().substring(JOBS.length()).split("/");
+                String method = exchange.getRequestMethod();
+
+                if (path.length == 1 && method.equals("POST")) {
+                    String id = "750" + jobCount.incrementAndGet();
+                    requests.put(id, StreamUtils.copyToString(exchange.getRequestBody(), StubServer.UTF_8));
+                    states.put(id, JobInfo.STATE_OPEN);
+                    polls.put(id, new AtomicInteger());
+                    StubServer.respondJson(exchange, 200, job(id));
+                } else if (path.length == 2 && method.equals("PATCH")) {
+                    String body = StreamUtils.copyToString(exchange.getRequestBody(), StubServer.UTF_8);
+                    states.put(path[1], body.contains(JobInfo.STATE_ABORTED) ? JobInfo.STATE_ABORTED : JobInfo.STATE_UPLOAD_COMPLETE);
+                    StubServer.respondJson(exchange, 200, job(path[1]));
+                } else if (path.length == 2 && method.equals("GET")) {
+                    // Completes on the third poll.
+                    if (polls.get(path[1]).incrementAndGet() >= 3) {
+                        states.put(path[1], JobInfo.STATE_JOB_COMPLETE);
+                    } else if (!path[0].equals("query")) {
+                        states.put(path[1], JobInfo.STATE_IN_PROGRESS);
+                    }
+                    StubServer.respondJson(exchange, 200, job(path[1]));
+                } else if (path.length == 3 && path[2].equals("batches") && method.equals("PUT") && failUploads) {
+                    StreamUtils.copyToString(exchange.getRequestBody(), StubServer.UTF_8);
+                    StubServer.respondJson(exchange, 500, "[{\"errorCode\":\"UNKNOWN_EXCEPTION\",\"message\":\"Upload failed\"}]");
+                } else if (path.length == 3 && path[2].equals("batches") && method.equals("PUT")) {
+                    uploads.put(path[1], StreamUtils.copyToString(exchange.getRequestBody(), StubServer.UTF_8));
+                    StubServer.respond(exchange, 201, "text/plain", "");
+                } else if (path.length == 3 && path[2].equals("successfulResults")) {
+                    String upload = uploads.get(path[1]);
+                    StubServer.respond(exchange, 200, "text/csv", "sf__Id,sf__Created," + upload.replace("\n", "\n001,true,").replaceAll("001,true,$", ""));
+                } else if (path.length == 3 && path[2].equals("results")) {
+                    String query = exchange.getRequestURI().getQuery();
+                    if (query == null) {
+                        exchange.getResponseHeaders().set("Sforce-Locator", "page2");
+                        StubServer.respond(exchange, 200, "text/csv", "\"Id\",\"Name\"\n\"001A\",\"One\"\n");
+                    } else {
+                        assertEquals("locator=page2", query);
+                        exchange.getResponseHeaders().set("Sforce-Locator", "null");
+                        StubServer.respond(exchange, 200, "text/csv", "\"Id\",\"Name\"\n\"001B\",\"Two\"\n");
+                    }
+                } else {
+                    StubServer.respondJson(exchange, 404, "[{\"errorCode\":\"NOT_FOUND\",\"message\":\"" + method + " " + exchange.getRequestURI() + "\"}]");
+                }
+            }
+        });
+
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()), new SFRestClient.DefaultTokenStorage());
+        bulkClient = new BulkClient(restClient);
+        bulkClient.setMinPollInterval(5);
+        bulkClient.setMaxPollInterval(20);
+    }
+
+    @After
+    public void clean() throws Exception {
+        restClient.destroy();
+        server.stop();
+    }
+
+    private String job(String id) {
+        String state = states.get(id);
+        long processed = JobInfo.STATE_JOB_COMPLETE.equals(state) && uploads.containsKey(id) ? uploads.get(id).split("\n").length - 1 : 0;
+        return "{\"id\":\"" + id + "\",\"state\":\"" + state + "\",\"object\":\"Account\",\"numberRecordsProcessed\":" + processed
+                + ",\"numberRecordsFailed\":0,\"apiVersion\":47.0}";
+    }
+
+    @Test
+    public void testIngestSplitsDataIntoJobs() {
+        String csv = "Name,Description\nOne,\"Multi\nline\"\nTwo,Plain\nThree,\"Quoted, \"\"comma\"\"\"\nFour,Last\n";
+        bulkClient.setMaxPartBytes(30);
+
+        List<JobInfo> jobs = bulkClient.ingest("Account", BulkOperation.INSERT, null, new ByteArrayInputStream(csv.getBytes(StubServer.UTF_8)));
+
+        assertEquals(3, jobs.size());
+        for (JobInfo job : jobs) {
+            assertEquals(JobInfo.STATE_JOB_COMPLETE, job.getState());
+        }
+
+        // Every part repeats the header and ends at a record boundary, never inside the quoted line break.
+        assertEquals("Name,Description\nOne,\"Multi\nline\"\n", uploads.get(jobs.get(0).getId()));
+        assertEquals("Name,Description\nTwo,Plain\nThree,\"Quoted, \"\"comma\"\"\"\n", uploads.get(jobs.get(1).getId()));
+        assertEquals("Name,Description\nFour,Last\n", uploads.get(jobs.get(2).getId()));
+        assertTrue(requests.get(jobs.get(0).getId()).contains("\"lineEnding\":\"LF\""));
+    }
+
+    @Test
+    public void testIngestCrlfData() {
+        String csv = "Name,Description\r\nOne,\"Multi\r\nline\"\r\nTwo,Plain\r\n";
+        bulkClient.setMaxPartBytes(30);
+
+        List<JobInfo> jobs = bulkClient.ingest("Account", BulkOperation.INSERT, null, new ByteArrayInputStream(csv.getBytes(StubServer.UTF_8)));
+
+        assertEquals(2, jobs.size());
+        assertEquals("Name,Description\r\nOne,\"Multi\r\nline\"\r\n", uploads.get(jobs.get(0).getId()));
+        assertEquals("Name,Description\r\nTwo,Plain\r\n", uploads.get(jobs.get(1).getId()));
+        for (JobInfo job : jobs) {
+            assertTrue(requests.get(job.getId()).contains("\"lineEnding\":\"CRLF\""));
+        }
+    }
+
+    @Test
+    public void testIngestAbortsJobsOnUploadFailure() {
+        failUploads = true;
+
+        try {
+            bulkClient.ingest("Account", BulkOperation.INSERT, null, new ByteArrayInputStream("Name\nOne\n".getBytes(StubServer.UTF_8)));
+            fail("Expected upload failure");
+        } catch (SFException e) {
+            assertEquals("UNKNOWN_EXCEPTION", e.getErrorCode());
+        }
+
+        assertEquals(1, jobCount.get());
+        assertEquals(JobInfo.STATE_ABORTED, states.get("7501"));
+    }
+
+    @Test
+    public void testIngestWithoutRecordsCreatesNoJobs() {
+        List<JobInfo> jobs = bulkClient.ingest("Account", BulkOperation.DELETE, null, new ByteArrayInputStream("Id\n".getBytes(StubServer.UTF_8)));
+
+        assertTrue(jobs.isEmpty());
+        assertEquals(0, jobCount.get());
+    }
+
+    @Test
+    public void testResultsWrittenToFile() throws IOException {
+        List<JobInfo> jobs = bulkClient.ingest("Account", BulkOperation.UPSERT, "External__c",
+                new ByteArrayInputStream("External__c,Name\nx1,One\nx2,Two\n".getBytes(StubServer.UTF_8)));
+        assertEquals(1, jobs.size());
+        assertEquals(2, jobs.get(0).getNumberRecordsProcessed());
+
+        Path file = Files.createTempFile("results", ".csv");
+        try {
+            bulkClient.writeResults(jobs.get(0).getId(), ResultType.SUCCESSFUL, file);
+            assertEquals("sf__Id,sf__Created,External__c,Name\n001,true,x1,One\n001,true,x2,Two\n",
+                    new String(Files.readAllBytes(file), StubServer.UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testQueryResultPagesConcatenated() {
+        JobInfo job = bulkClient.createQueryJob("SELECT Id, Name FROM Account", false);
+        assertEquals(JobInfo.STATE_JOB_COMPLETE, bulkClient.waitForQueryJob(job.getId()).getState());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bulkClient.writeQueryResults(job.getId(), out);
+
+        assertEquals("\"Id\",\"Name\"\n\"001A\",\"One\"\n\"001B\",\"Two\"\n", new String(out.toByteArray(), StubServer.UTF_8));
+    }
+}
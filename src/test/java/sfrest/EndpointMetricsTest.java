@@ -0,0 +1,134 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EndpointMetricsTest {
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private EndpointMetrics metrics;
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/sobjects/Account", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (exchange.getRequestURI().getPath().endsWith("001000000000001AAA")) {
+                    StubServer.respondJson(exchange, 200, "{\"Id\":\"001000000000001AAA\"}");
+                } else {
+                    StubServer.respondJson(exchange, 404, "[{\"errorCode\":\"NOT_FOUND\",\"message\":\"The requested resource does not exist\"}]");
+                }
+            }
+        });
+        server.handle("/services/data/v29.0/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (exchange.getRequestURI().getPath().endsWith("-2")) {
+                    StubServer.respondJson(exchange, 200, "{\"totalSize\":2,\"done\":true,\"records\":[{\"Id\":\"2\"}]}");
+                } else {
+                    StubServer.respondJson(exchange, 200, "{\"totalSize\":2,\"done\":false,"
+                            + "\"nextRecordsUrl\":\"/services/data/v29.0/query/01gXX-2\",\"records\":[{\"Id\":\"1\"}]}");
+                }
+            }
+        });
+
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()));
+        metrics = new EndpointMetrics();
+        restClient.setMetricsListener(metrics);
+    }
+
+    @After
+    public void clean() {
+        server.stop();
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("/sobjects/{type}/{id}", MetricsInterceptor.normalize("/services/data/v29.0/sobjects/Account/001D000000IqhSLIAZ"));
+        assertEquals("/sobjects/{type}/describe", MetricsInterceptor.normalize("/services/data/v34.0/sobjects/Account/describe"));
+        assertEquals("/sobjects", MetricsInterceptor.normalize("/services/data/v29.0/sobjects"));
+        assertEquals("/query", MetricsInterceptor.normalize("/services/data/v29.0/query/"));
+        assertEquals("/query/{locator}", MetricsInterceptor.normalize("/services/data/v29.0/query/01gD0000002HU6KIAW-2000"));
+        assertEquals("/services/apexrest/orders/{id}", MetricsInterceptor.normalize("/services/apexrest/orders/a01D000000IqhSL"));
+        assertEquals("/services/oauth2/token", MetricsInterceptor.normalize("/services/oauth2/token"));
+        assertEquals("/sobjects/{type}/Ext__c/{value}", MetricsInterceptor.normalize("/services/data/v29.0/sobjects/Account/Ext__c/ABC-1"));
+        assertEquals("/sobjects/{type}/{id}/Contacts", MetricsInterceptor.normalize("/services/data/v29.0/sobjects/Account/001D000000IqhSLIAZ/Contacts"));
+        assertEquals("/sobjects/{type}/updated", MetricsInterceptor.normalize("/services/data/v29.0/sobjects/Account/updated/"));
+        assertEquals("", MetricsInterceptor.normalize("/services/data/v29.0"));
+    }
+
+    @Test
+    public void testEndpointsBounded() {
+        metrics.setMaxEndpoints(2);
+        for (int i = 0; i < 5; i++) {
+            metrics.requestCompleted(HttpMethod.GET, "/services/apexrest/orders/ORD-" + i, 200, null, 1000, 0, 10);
+        }
+
+        assertEquals(3, metrics.getEndpoints().size());
+        assertEquals(3, metrics.get(HttpMethod.GET, EndpointMetrics.OTHER_ENDPOINTS).getRequestCount());
+        assertEquals(1, metrics.get(HttpMethod.GET, "/services/apexrest/orders/ORD-0").getRequestCount());
+        assertNull(metrics.get(HttpMethod.POST, "/services/apexrest/orders/ORD-0"));
+    }
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMax(TimeUnit.MILLISECONDS));
+        assertEquals(50, histogram.getMean(TimeUnit.MILLISECONDS));
+
+        long p50 = histogram.getPercentile(50, TimeUnit.MILLISECONDS);
+        assertTrue("p50 " + p50, p50 >= 50 && p50 <= 63);
+        assertEquals(100, histogram.getPercentile(100, TimeUnit.MILLISECONDS));
+
+        for (long value : new long[]{0, 3, 4, 7, 8, 1000, 123456789, Long.MAX_VALUE}) {
+            assertTrue(value <= LatencyHistogram.upperBound(LatencyHistogram.bucket(value)));
+        }
+    }
+
+    @Test
+    public void testRecordRequests() {
+        restClient.getSObject("Account", "001000000000001AAA");
+        try {
+            restClient.getSObject("Account", "001000000000002AAA");
+            fail();
+        } catch (SFException e) {
+            assertEquals("NOT_FOUND", e.getErrorCode());
+        }
+
+        EndpointMetrics.Stats stats = metrics.get(HttpMethod.GET, "/sobjects/{type}/{id}");
+        assertEquals(2, stats.getRequestCount());
+        assertEquals(1, stats.getStatusCount(200));
+        assertEquals(1, stats.getStatusCount(404));
+        assertEquals(Long.valueOf(1), stats.getErrorCounts().get("NOT_FOUND"));
+        assertTrue(stats.getResponseBytes() > 0);
+        assertNull(metrics.get(HttpMethod.POST, "/sobjects/{type}/{id}"));
+
+        assertEquals(1, metrics.getTokenAcquisition().getCount());
+    }
+
+    @Test
+    public void testRecordPagination() {
+        Query query = new Query("SELECT Id FROM Account");
+        restClient.query(query);
+        restClient.query(query);
+
+        assertEquals(1, metrics.get(HttpMethod.GET, "/query").getRequestCount());
+        assertEquals(1, metrics.get(HttpMethod.GET, "/query/{locator}").getRequestCount());
+    }
+}
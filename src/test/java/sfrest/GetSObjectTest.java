@@ -0,0 +1,112 @@
+package sfrest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class GetSObjectTest {
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private volatile String lastQuery;
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/sobjects/Account", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                lastQuery = exchange.getRequestURI().getQuery();
+                if (exchange.getRequestURI().getPath().endsWith("/001A")) {
+                    StubServer.respondJson(exchange, 200, "{\"attributes\":{\"type\":\"Account\"},\"Id\":\"001A\",\"Name\":\"Acme\"}");
+                } else {
+                    StubServer.respondJson(exchange, 404, "[{\"errorCode\":\"NOT_FOUND\",\"message\":\"The requested resource does not exist\"}]");
+                }
+            }
+        });
+        server.handle("/services/data/v29.0/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                lastQuery = exchange.getRequestURI().getQuery();
+                if (lastQuery.contains("'001A'")) {
+                    StubServer.respondJson(exchange, 200, "{\"totalSize\":1,\"done\":true,\"records\":["
+                            + "{\"attributes\":{\"type\":\"Account\"},\"Id\":\"001A\",\"Name\":\"Acme\",\"Owner\":{\"Name\":\"Jeff\"}}]}");
+                } else {
+                    StubServer.respondJson(exchange, 200, "{\"totalSize\":0,\"done\":true,\"records\":[]}");
+                }
+            }
+        });
+
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()));
+    }
+
+    @After
+    public void clean() {
+        server.stop();
+    }
+
+    @Test
+    public void testFlatGet() {
+        AccountName account = restClient.getSObject(AccountName.class, "001A");
+        assertEquals("fields=Id,Name", lastQuery);
+        assertEquals("001A", account.id);
+        assertEquals("Acme", account.name);
+    }
+
+    @Test
+    public void testFlatGetNotFound() {
+        try {
+            restClient.getSObject(AccountName.class, "001B");
+            fail();
+        } catch (SFException e) {
+            assertEquals("NOT_FOUND", e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testNestedGetQueries() {
+        Account account = restClient.getSObject(Account.class, "001A");
+        assertEquals("q=SELECT Id, Name, Owner.Name FROM Account WHERE Id = '001A'", lastQuery);
+        assertEquals("Acme", account.name);
+        assertEquals("Jeff", account.owner.name);
+    }
+
+    @Test
+    public void testNestedGetNotFound() {
+        try {
+            restClient.getSObject(Account.class, "001B");
+            fail();
+        } catch (SFException e) {
+            assertEquals("NOT_FOUND", e.getErrorCode());
+        }
+    }
+
+    @SObjectType("Account")
+    static class AccountName {
+        @JsonProperty("Id")
+        String id;
+        @JsonProperty("Name")
+        String name;
+    }
+
+    static class Account {
+        @JsonProperty("Id")
+        String id;
+        @JsonProperty("Name")
+        String name;
+        @JsonProperty("Owner")
+        Owner owner;
+    }
+
+    static class Owner {
+        @JsonProperty("Name")
+        String name;
+    }
+}
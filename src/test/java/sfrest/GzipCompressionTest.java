@@ -0,0 +1,117 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class GzipCompressionTest {
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private EndpointMetrics metrics;
+    private volatile String requestEncoding;
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                StringBuilder json = new StringBuilder("{\"totalSize\":500,\"done\":true,\"records\":[");
+                for (int i = 0; i < 500; i++) {
+                    json.append(i == 0 ? "" : ",").append("{\"attributes\":{\"type\":\"Account\"},\"Id\":\"").append(i).append("\",\"Name\":\"Account ").append(i).append("\"}");
+                }
+                respond(exchange, json.append("]}").toString().getBytes(StubServer.UTF_8));
+            }
+        });
+        server.handle("/services/apexrest/echo", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+                InputStream in = exchange.getRequestBody();
+                if ("gzip".equals(requestEncoding)) {
+                    in = new GZIPInputStream(in);
+                }
+                respond(exchange, StreamUtils.copyToByteArray(in));
+            }
+        });
+
+        ConnectionConfig config = new ConnectionConfig();
+        config.setContentCompression(false);
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()), new SFRestClient.DefaultTokenStorage(), config);
+        metrics = new EndpointMetrics();
+        restClient.setMetricsListener(metrics);
+        restClient.setGzipCompression(new GzipCompression());
+    }
+
+    @After
+    public void clean() throws Exception {
+        restClient.destroy();
+        server.stop();
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    public void testDecompressResponse() {
+        QueryResult<Map<String, ?>> qResult = restClient.query(new Query("SELECT Id, Name FROM Account"));
+        assertEquals(500, qResult.getRecords().size());
+        assertEquals("Account 499", qResult.getRecords().get(499).get("Name"));
+
+        EndpointMetrics.Stats stats = metrics.get(HttpMethod.GET, "/query");
+        assertTrue(stats.getCompressedBytes() > 0);
+        assertTrue(stats.getUncompressedBytes() > 5 * stats.getCompressedBytes());
+        assertEquals(stats.getUncompressedBytes(), stats.getResponseBytes());
+    }
+
+    @Test
+    public void testCompressLargeRequest() {
+        Map<String, Object> body = new HashMap<>();
+        body.put("Description", new String(new char[2000]).replace('\0', 'x'));
+
+        Map<String, ?> echo = restClient.getMap(SFRestClient.BASE_URI_APEX + "/echo", HttpMethod.POST, body);
+
+        assertEquals("gzip", requestEncoding);
+        assertEquals(body, echo);
+        assertTrue(metrics.get(HttpMethod.POST, "/services/apexrest/echo").getCompressedBytes() > 0);
+    }
+
+    @Test
+    public void testSmallRequestUncompressed() {
+        List<?> echo = restClient.getList(SFRestClient.BASE_URI_APEX + "/echo", HttpMethod.POST, new int[]{1, 2, 3});
+
+        assertNull(requestEncoding);
+        assertEquals(3, echo.size());
+    }
+}
@@ -0,0 +1,67 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.apache.http.pool.PoolStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class HttpClientConnectionPoolTest {
+
+    private StubServer server;
+    private SFRestClient restClient;
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/sobjects", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                StubServer.respondJson(exchange, 200, "{\"encoding\":\"UTF-8\",\"maxBatchSize\":200,\"sobjects\":[]}");
+            }
+        });
+
+        ConnectionConfig config = new ConnectionConfig();
+        config.setMaxPerRoute(5);
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()), new SFRestClient.DefaultTokenStorage(), config);
+    }
+
+    @After
+    public void clean() throws Exception {
+        restClient.destroy();
+        server.stop();
+    }
+
+    @Test
+    public void testPoolStats() {
+        HttpClientConnectionPool pool = restClient.getConnectionPool();
+        assertNotNull(pool);
+
+        restClient.listSObjects();
+        restClient.listSObjects();
+
+        PoolStats stats = pool.getStats(server.getUrl());
+        assertEquals(0, stats.getLeased());
+        assertEquals(1, stats.getAvailable());
+        assertEquals(5, stats.getMax());
+        assertEquals(1, pool.getTotalStats().getAvailable());
+
+        pool.getConfig().setIdleTimeout(1);
+        sleep(50);
+        pool.evictConnections();
+        assertEquals(0, pool.getTotalStats().getAvailable());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MetadataCacheTest {
+
+    private static final String LAST_MODIFIED = "Thu, 16 Oct 2026 10:00:00 GMT";
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private MetadataCache cache;
+    private final AtomicInteger fullResponses = new AtomicInteger();
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/sobjects", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (LAST_MODIFIED.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+
+                fullResponses.incrementAndGet();
+                exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+
+                String path = exchange.getRequestURI().getPath();
+                if (path.endsWith("/describe")) {
+                    String type = path.split("/")[5];
+                    StubServer.respondJson(exchange, 200, "{\"name\":\"" + type + "\",\"fields\":[]}");
+                } else {
+                    StubServer.respondJson(exchange, 200, "{\"encoding\":\"UTF-8\",\"sobjects\":[]}");
+                }
+            }
+        });
+
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()));
+        cache = new MetadataCache(2);
+        restClient.setMetadataCache(cache);
+    }
+
+    @After
+    public void clean() {
+        server.stop();
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        assertEquals("Account", restClient.getSObjectMetadata("Account", true).get("name"));
+        assertEquals("Account", restClient.getSObjectMetadata("Account", true).get("name"));
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, fullResponses.get());
+
+        cache.invalidate("Account");
+        restClient.getSObjectMetadata("Account", true);
+        assertEquals(2, fullResponses.get());
+    }
+
+    @Test
+    public void testInvalidateIgnoresCase() {
+        restClient.getSObjectMetadata("Account", true);
+        cache.invalidate("ACCOUNT");
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCachedMapUnmodifiable() {
+        restClient.getSObjectMetadata("Account", true).clear();
+    }
+
+    @Test
+    public void testRevalidation() {
+        cache.setTimeToLive(0);
+
+        restClient.listSObjects();
+        assertEquals("UTF-8", restClient.listSObjects().get("encoding"));
+
+        assertEquals(1, fullResponses.get());
+        assertEquals(1, cache.getRevalidationCount());
+    }
+
+    @Test
+    public void testLruEviction() {
+        cache.setPreloadTypes(Arrays.asList("Account", "Lead"));
+        cache.preload(restClient);
+        assertEquals(2, cache.size());
+        assertEquals(server.getUrl() + "/services/data/v29.0/sobjects/Account/describe", cache.keys().get(0));
+
+        restClient.getSObjectMetadata("Contact", true);
+        assertEquals(2, cache.size());
+        assertFalse(cache.keys().contains(server.getUrl() + "/services/data/v29.0/sobjects/Account/describe"));
+    }
+}
@@ -0,0 +1,90 @@
+package sfrest;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ObjectMapperTest {
+
+    private StubServer server;
+    private SFRestClient restClient;
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/sobjects/Account", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                if (path.endsWith("/001A")) {
+                    StubServer.respondJson(exchange, 200, "{\"Id\":\"001A\",\"AnnualRevenue\":1234.5}");
+                } else if (path.endsWith("/001B")) {
+                    StubServer.respondJson(exchange, 400, "[{\"errorCode\":\"FIELD_CUSTOM_VALIDATION_EXCEPTION\",\"message\":\"Überprüfung fehlgeschlagen\"}]");
+                } else {
+                    StubServer.respond(exchange, 503, "text/html", "<html><body>Service Unavailable</body></html>");
+                }
+            }
+        });
+
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()));
+    }
+
+    @After
+    public void clean() {
+        server.stop();
+    }
+
+    @Test
+    public void testErrorDecodedAsUtf8() {
+        try {
+            restClient.getSObject("Account", "001B");
+            fail();
+        } catch (SFException e) {
+            assertEquals("FIELD_CUSTOM_VALIDATION_EXCEPTION", e.getErrorCode());
+            assertEquals("Überprüfung fehlgeschlagen", e.getMessage());
+            assertTrue(e.getResponse().contains("Überprüfung"));
+        }
+    }
+
+    @Test
+    public void testNonJsonError() {
+        try {
+            restClient.getSObject("Account", "001C");
+            fail();
+        } catch (HttpServerErrorException e) {
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+            assertTrue(e.getResponseBodyAsString().contains("Service Unavailable"));
+        }
+    }
+
+    @Test
+    public void testSharedObjectMapper() {
+        ObjectMapper mapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        restClient.setObjectMapper(mapper);
+
+        assertSame(mapper, restClient.getObjectMapper());
+        for (HttpMessageConverter<?> converter : restClient.getRestTemplate().getMessageConverters()) {
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                assertSame(mapper, ((MappingJackson2HttpMessageConverter) converter).getObjectMapper());
+            }
+        }
+        assertTrue(restClient.getRecordBinder().getObjectMapper().isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS));
+
+        Map<String, ?> account = restClient.getSObject("Account", "001A");
+        assertEquals(new BigDecimal("1234.5"), account.get("AnnualRevenue"));
+    }
+}
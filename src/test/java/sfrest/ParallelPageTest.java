@@ -0,0 +1,134 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ParallelPageTest {
+
+    private static final int TOTAL = 95;
+    private static final int PAGE_SIZE = 10;
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private volatile String locatorPrefix = "01gXX000000abcd";
+    private volatile int shortPageOffset = -1;
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int current = active.incrementAndGet();
+                while (current > maxActive.get()) {
+                    maxActive.compareAndSet(maxActive.get(), current);
+                }
+
+                try {
+                    String path = exchange.getRequestURI().getPath();
+                    int offset = path.contains("-") ? Integer.parseInt(path.substring(path.lastIndexOf('-') + 1)) : 0;
+                    Thread.sleep(offset == 30 ? 100 : 20); // One slow page.
+                    StubServer.respondJson(exchange, 200, page(offset));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    active.decrementAndGet();
+                }
+            }
+        });
+
+        ConnectionConfig config = new ConnectionConfig();
+        config.setMaxPerRoute(10);
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()), new SFRestClient.DefaultTokenStorage(), config);
+    }
+
+    @After
+    public void clean() throws Exception {
+        restClient.destroy();
+        server.stop();
+    }
+
+    private String page(int offset) {
+        int size = Math.min(offset == shortPageOffset ? PAGE_SIZE / 2 : PAGE_SIZE, TOTAL - offset);
+        StringBuilder json = new StringBuilder("{\"totalSize\":").append(TOTAL).append(",\"done\":").append(offset + size == TOTAL);
+        if (offset + size < TOTAL) {
+            json.append(",\"nextRecordsUrl\":\"/services/data/v29.0/query/").append(locatorPrefix).append('-').append(offset + size).append('"');
+        }
+        json.append(",\"records\":[");
+        for (int i = 0; i < size; i++) {
+            json.append(i > 0 ? "," : "").append("{\"attributes\":{\"type\":\"Account\"},\"Id\":").append(offset + i).append("}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private List<Object> readAll(ParallelPageIterator it) {
+        List<Object> ids = new ArrayList<>();
+        try {
+            while (it.hasNext()) {
+                ids.add(it.next().get("Id"));
+            }
+        } finally {
+            it.close();
+        }
+        return ids;
+    }
+
+    private static List<Object> expectedIds() {
+        List<Object> ids = new ArrayList<>();
+        for (int i = 0; i < TOTAL; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+
+    @Test
+    public void testOrdered() {
+        Query query = new Query("SELECT Id FROM Account");
+        ParallelPageIterator it = restClient.parallelPageIterator(query, 4, true);
+
+        assertEquals(expectedIds(), readAll(it));
+        assertFalse(it.isSequential());
+        assertEquals(TOTAL, it.getTotalSize());
+        assertTrue("max concurrent requests " + maxActive.get(), maxActive.get() > 1 && maxActive.get() <= 4);
+        assertNull(query.getNextUri());
+    }
+
+    @Test
+    public void testUnordered() {
+        List<Object> ids = readAll(restClient.parallelPageIterator(new Query("SELECT Id FROM Account"), 4, false));
+
+        assertEquals(TOTAL, ids.size());
+        assertEquals(new HashSet<>(expectedIds()), new HashSet<>(ids));
+        assertNotEquals("slow page is overtaken", expectedIds(), ids);
+    }
+
+    @Test
+    public void testShortPageIsCompleted() {
+        shortPageOffset = 40;
+
+        assertEquals(expectedIds(), readAll(restClient.parallelPageIterator(new Query("SELECT Id FROM Account"), 4, true)));
+    }
+
+    @Test
+    public void testUnknownLocatorFormatFallsBack() {
+        locatorPrefix = "cursor/abc";
+        ParallelPageIterator it = restClient.parallelPageIterator(new Query("SELECT Id FROM Account"), 4, true);
+
+        assertEquals(expectedIds(), readAll(it));
+        assertTrue(it.isSequential());
+        assertEquals(1, maxActive.get());
+    }
+}
@@ -0,0 +1,176 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class ParallelQueryTest {
+
+    private static final Pattern LOWER = Pattern.compile("Id >= '(\\w+)'");
+    private static final Pattern UPPER = Pattern.compile("Id < '(\\w+)'");
+    private static final int PAGE_SIZE = 10;
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private final List<String> ids = new ArrayList<>();
+    private final Map<String, List<String>> remaining = new ConcurrentHashMap<>();
+    private final AtomicInteger locators = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    @Before
+    public void init() {
+        BigInteger first = QueryChunks.decodeId("001000000000000");
+        for (int i = 0; i < 100; i++) {
+            ids.add(QueryChunks.encodeId(first.add(BigInteger.valueOf(i * 1000 + 7))) + "AAA");
+        }
+
+        server = new StubServer();
+        server.handle("/services/data/v29.0/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int current = active.incrementAndGet();
+                while (current > maxActive.get()) {
+                    maxActive.compareAndSet(maxActive.get(), current);
+                }
+
+                try {
+                    Thread.sleep(20);
+                    String path = exchange.getRequestURI().getPath();
+                    List<String> page = path.contains("-") ? remaining.remove(path.substring(path.lastIndexOf('-') + 1)) : select(exchange.getRequestURI().getQuery());
+                    if (page != null) {
+                        StubServer.respondJson(exchange, 200, page(page));
+                    } else {
+                        StubServer.respondJson(exchange, 400, "[{\"errorCode\":\"INVALID_QUERY_LOCATOR\",\"message\":\"invalid query locator\"}]");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    active.decrementAndGet();
+                }
+            }
+        });
+
+        ConnectionConfig config = new ConnectionConfig();
+        config.setMaxPerRoute(10);
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()), new SFRestClient.DefaultTokenStorage(), config);
+    }
+
+    @After
+    public void clean() throws Exception {
+        restClient.destroy();
+        server.stop();
+    }
+
+    private List<String> select(String soql) {
+        if (soql.contains("ORDER BY Id ASC")) {
+            return ids.subList(0, 1);
+        } else if (soql.contains("ORDER BY Id DESC")) {
+            return ids.subList(ids.size() - 1, ids.size());
+        }
+
+        Matcher lower = LOWER.matcher(soql);
+        Matcher upper = UPPER.matcher(soql);
+        String from = lower.find() ? lower.group(1) : "";
+        String to = upper.find() ? upper.group(1) : "zzzzzzzzzzzzzzz";
+
+        List<String> selected = new ArrayList<>();
+        for (String id : ids) {
+            String id15 = id.substring(0, 15);
+            if (id15.compareTo(from) >= 0 && id15.compareTo(to) < 0) {
+                selected.add(id);
+            }
+        }
+        return selected;
+    }
+
+    private String page(List<String> records) {
+        List<String> page = records.subList(0, Math.min(PAGE_SIZE, records.size()));
+        StringBuilder json = new StringBuilder("{\"totalSize\":").append(records.size()).append(",\"done\":").append(page.size() == records.size());
+        if (page.size() < records.size()) {
+            String locator = Integer.toString(locators.incrementAndGet());
+            remaining.put(locator, new ArrayList<>(records.subList(page.size(), records.size())));
+            json.append(",\"nextRecordsUrl\":\"/services/data/v29.0/query/01gXX-").append(locator).append('"');
+        }
+        json.append(",\"records\":[");
+        for (int i = 0; i < page.size(); i++) {
+            json.append(i > 0 ? "," : "").append("{\"attributes\":{\"type\":\"Account\"},\"Id\":\"").append(page.get(i)).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    @Test
+    public void testSplitIdRange() {
+        List<String> boundaries = QueryChunks.splitIdRange("001000000000000AAA", "001000000000100AAA", 4);
+
+        BigInteger min = QueryChunks.decodeId("001000000000000");
+        assertEquals(3, boundaries.size());
+        assertEquals(QueryChunks.encodeId(min.add(BigInteger.valueOf(961))), boundaries.get(0));
+        assertEquals(QueryChunks.encodeId(min.add(BigInteger.valueOf(1922))), boundaries.get(1));
+        assertEquals(QueryChunks.encodeId(min.add(BigInteger.valueOf(2883))), boundaries.get(2));
+
+        // Too narrow a range to split.
+        assertEquals(1, QueryChunks.splitIdRange("001000000000000", "001000000000002", 4).size());
+        assertTrue(QueryChunks.splitIdRange("001000000000000", "001000000000000", 4).isEmpty());
+    }
+
+    @Test
+    public void testChunksByField() {
+        List<Query> queries = QueryChunks.byField("SELECT Id FROM Account", "Type = 'Customer'", "CreatedDate",
+                Arrays.asList("2020-01-01T00:00:00Z", "2021-01-01T00:00:00Z"));
+
+        assertEquals(3, queries.size());
+        assertEquals("SELECT Id FROM Account WHERE (Type = 'Customer') AND CreatedDate < 2020-01-01T00:00:00Z", queries.get(0).getSoql());
+        assertEquals("SELECT Id FROM Account WHERE (Type = 'Customer') AND CreatedDate >= 2020-01-01T00:00:00Z AND CreatedDate < 2021-01-01T00:00:00Z",
+                queries.get(1).getSoql());
+        assertEquals("SELECT Id FROM Account WHERE (Type = 'Customer') AND CreatedDate >= 2021-01-01T00:00:00Z", queries.get(2).getSoql());
+    }
+
+    @Test
+    public void testParallelQueryReturnsAllRecords() {
+        List<Query> chunks = QueryChunks.byId(restClient, "SELECT Id FROM Account", null, 8);
+        assertEquals(8, chunks.size());
+
+        Set<Object> seen = new HashSet<>();
+        try (ParallelQueryIterator it = restClient.parallelQueryIterator(chunks, 4)) {
+            while (it.hasNext()) {
+                assertTrue(seen.add(it.next().get("Id")));
+            }
+        }
+
+        assertEquals(new HashSet<Object>(ids), seen);
+        assertTrue("max concurrent requests " + maxActive.get(), maxActive.get() > 1 && maxActive.get() <= 4);
+    }
+
+    @Test(expected = SFException.class)
+    public void testChunkErrorRethrown() {
+        List<Query> chunks = new ArrayList<>();
+        chunks.add(new Query("SELECT Id FROM Account"));
+        Query failing = new Query("SELECT Id FROM Account");
+        failing.setNextUri("/services/data/v29.0/query/01gXX-missing");
+        chunks.add(failing);
+
+        try (ParallelQueryIterator it = restClient.parallelQueryIterator(chunks, 2)) {
+            while (it.hasNext()) {
+                it.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QueryExporterTest {
+
+    private static final int PAGES = 3;
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private Path dir;
+    private volatile int failPage = -1;
+
+    @Before
+    public void init() throws IOException {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                int page = path.contains("-") ? Integer.parseInt(path.substring(path.lastIndexOf('-') + 1)) : 0;
+
+                if (page == failPage) {
+                    StubServer.respondJson(exchange, 500, "[{\"errorCode\":\"UNKNOWN_EXCEPTION\",\"message\":\"try again\"}]");
+                } else {
+                    StubServer.respondJson(exchange, 200, page(page));
+                }
+            }
+        });
+
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()));
+        dir = Files.createTempDirectory("export");
+    }
+
+    @After
+    public void clean() throws IOException {
+        server.stop();
+        for (Path file : Files.newDirectoryStream(dir)) {
+            Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testNdjsonFlattensRelationships() throws IOException {
+        Path file = dir.resolve("accounts.ndjson");
+
+        long records = new QueryExporter(restClient).export(new Query("SELECT Id, Name, Owner.Name FROM Account"), file);
+
+        List<String> lines = Files.readAllLines(file, StubServer.UTF_8);
+        assertEquals(PAGES * 2, records);
+        assertEquals(PAGES * 2, lines.size());
+        assertEquals("{\"Id\":\"0-0\",\"Name\":\"Account, \\\"0\\\"\",\"Owner.Name\":\"Owner 0\",\"Amount\":1.5E7}", lines.get(0));
+    }
+
+    @Test
+    public void testCsvWithProjection() throws IOException {
+        Path file = dir.resolve("accounts.csv");
+        QueryExporter exporter = new QueryExporter(restClient);
+        exporter.setFormat(QueryExporter.Format.CSV);
+        exporter.setColumns(Arrays.asList("Id", "Owner.Name", "Name", "Amount"));
+
+        exporter.export(new Query("SELECT Id, Name, Owner.Name FROM Account"), file);
+
+        List<String> lines = Files.readAllLines(file, StubServer.UTF_8);
+        assertEquals(1 + PAGES * 2, lines.size());
+        assertEquals("Id,Owner.Name,Name,Amount", lines.get(0));
+        assertEquals("0-0,Owner 0,\"Account, \"\"0\"\"\",15000000", lines.get(1));
+        assertEquals("2-1,Owner 2,\"Account, \"\"2\"\"\",15000000", lines.get(PAGES * 2));
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws IOException {
+        Path file = dir.resolve("accounts.csv");
+        Path checkpoint = dir.resolve("accounts.checkpoint");
+        Query query = new Query("SELECT Id, Name, Owner.Name FROM Account");
+
+        QueryExporter exporter = new QueryExporter(restClient);
+        exporter.setFormat(QueryExporter.Format.CSV);
+        exporter.setCheckpointFile(checkpoint);
+
+        failPage = 2;
+        try {
+            exporter.export(query, file);
+            fail("Expected the last page to fail");
+        } catch (SFException e) {
+            assertTrue(Files.exists(checkpoint));
+        }
+
+        failPage = -1;
+        long records = exporter.export(new Query(query.getSoql()), file);
+
+        List<String> lines = Files.readAllLines(file, StubServer.UTF_8);
+        assertEquals(PAGES * 2, records);
+        assertEquals(1 + PAGES * 2, lines.size());
+        assertEquals("Id,Name,Owner.Name,Amount", lines.get(0));
+        assertTrue(lines.get(PAGES * 2).startsWith("2-1,"));
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    private static String page(int page) {
+        StringBuilder json = new StringBuilder("{\"totalSize\":").append(PAGES * 2)
+                .append(",\"done\":").append(page == PAGES - 1);
+        if (page < PAGES - 1) {
+            json.append(",\"nextRecordsUrl\":\"/services/data/v29.0/query/01gXX-").append(page + 1).append('"');
+        }
+        json.append(",\"records\":[");
+        for (int i = 0; i < 2; i++) {
+            json.append(i > 0 ? "," : "").append("{\"attributes\":{\"type\":\"Account\"},\"Id\":\"").append(page).append('-').append(i)
+                    .append("\",\"Name\":\"Account, \\\"").append(page).append("\\\"\"")
+                    .append(",\"Owner\":{\"attributes\":{\"type\":\"User\"},\"Name\":\"Owner ").append(page).append("\"}")
+                    .append(",\"Amount\":1.5E7}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,112 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class QueryIteratorTest {
+
+    private static final int PAGES = 5;
+    private static final int PAGE_SIZE = 3;
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private final AtomicInteger pagesServed = new AtomicInteger();
+    private volatile String queryOptions;
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                queryOptions = exchange.getRequestHeaders().getFirst("Sforce-Query-Options");
+
+                String path = exchange.getRequestURI().getPath();
+                int page = path.contains("-") ? Integer.parseInt(path.substring(path.lastIndexOf('-') + 1)) : 0;
+                pagesServed.incrementAndGet();
+
+                StubServer.respondJson(exchange, 200, page(page));
+            }
+        });
+
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()));
+    }
+
+    @After
+    public void clean() {
+        server.stop();
+    }
+
+    @Test
+    public void testIterateAllPages() {
+        Query query = new Query("SELECT Id FROM Account");
+        query.setBatchSize(200);
+
+        List<Object> ids = new ArrayList<>();
+        try (QueryIterator it = restClient.queryIterator(query, 2)) {
+            while (it.hasNext()) {
+                ids.add(it.next().get("Id"));
+            }
+            assertEquals(PAGES * PAGE_SIZE, it.getTotalSize());
+        }
+
+        assertEquals(PAGES * PAGE_SIZE, ids.size());
+        assertEquals("0-0", ids.get(0));
+        assertEquals((PAGES - 1) + "-" + (PAGE_SIZE - 1), ids.get(ids.size() - 1));
+        assertEquals("batchSize=200", queryOptions);
+        assertNull(query.getNextUri());
+    }
+
+    @Test
+    public void testPrefetchIsBounded() throws InterruptedException {
+        QueryIterator it = restClient.queryIterator(new Query("SELECT Id FROM Account"), 1);
+        assertTrue(it.hasNext());
+        Thread.sleep(500);
+
+        // One page consumed, one buffered, one fetched and waiting for room.
+        assertTrue(pagesServed.get() <= 3);
+
+        it.close();
+    }
+
+    @Test(expected = SFException.class)
+    public void testPageErrorRethrown() {
+        server.handle("/services/data/v29.0/query/01g-fail", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                StubServer.respondJson(exchange, 400, "[{\"errorCode\":\"INVALID_QUERY_LOCATOR\",\"message\":\"invalid query locator\"}]");
+            }
+        });
+
+        Query query = new Query("SELECT Id FROM Account");
+        query.setNextUri("/services/data/v29.0/query/01g-fail");
+
+        try (QueryIterator it = restClient.queryIterator(query, 2)) {
+            it.hasNext();
+        }
+    }
+
+    private static String page(int page) {
+        StringBuilder json = new StringBuilder("{\"totalSize\":").append(PAGES * PAGE_SIZE)
+                .append(",\"done\":").append(page == PAGES - 1);
+        if (page < PAGES - 1) {
+            json.append(",\"nextRecordsUrl\":\"/services/data/v29.0/query/01gXX-").append(page + 1).append('"');
+        }
+        json.append(",\"records\":[");
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            json.append(i > 0 ? "," : "").append("{\"attributes\":{\"type\":\"Account\"},\"Id\":\"").append(page).append('-').append(i).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+}
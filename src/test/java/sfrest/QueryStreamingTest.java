@@ -0,0 +1,99 @@
+package sfrest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class QueryStreamingTest {
+
+    private StubServer server;
+    private SFRestClient restClient;
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (exchange.getRequestURI().getPath().endsWith("-2")) {
+                    StubServer.respondJson(exchange, 200, "{\"records\":[{\"attributes\":{\"type\":\"Account\"},\"Id\":\"3\",\"Name\":\"C\"}],"
+                            + "\"totalSize\":3,\"done\":true}");
+                } else {
+                    StubServer.respondJson(exchange, 200, "{\"totalSize\":3,\"done\":false,"
+                            + "\"nextRecordsUrl\":\"/services/data/v29.0/query/01gXX-2\",\"records\":["
+                            + "{\"attributes\":{\"type\":\"Account\"},\"Id\":\"1\",\"Name\":\"A\",\"Owner\":{\"Name\":\"Jeff\"}},"
+                            + "{\"attributes\":{\"type\":\"Account\"},\"Id\":\"2\",\"Name\":\"B\",\"Owner\":null}]}");
+                }
+            }
+        });
+
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()));
+    }
+
+    @After
+    public void clean() {
+        server.stop();
+    }
+
+    @Test
+    public void testStreamingQuery() {
+        final List<Map<String, ?>> records = new ArrayList<>();
+        RecordHandler<Map<String, ?>> handler = new RecordHandler<Map<String, ?>>() {
+            @Override
+            public void handleRecord(Map<String, ?> record) {
+                records.add(record);
+            }
+        };
+
+        Query query = new Query("SELECT Id, Name, Owner.Name FROM Account");
+        QueryResult qResult = restClient.query(query, handler);
+        assertFalse(qResult.isDone());
+        assertEquals(3, qResult.getTotalSize());
+        assertNull(qResult.getRecords());
+        assertEquals("/services/data/v29.0/query/01gXX-2", query.getNextUri());
+        assertEquals(2, records.size());
+        assertEquals("Jeff", ((Map) records.get(0).get("Owner")).get("Name"));
+
+        qResult = restClient.query(query, handler);
+        assertTrue(qResult.isDone());
+        assertNull(query.getNextUri());
+        assertEquals(3, records.size());
+        assertEquals("C", records.get(2).get("Name"));
+    }
+
+    @Test
+    public void testTypedQuery() {
+        Query query = restClient.createQuery(Account.class, "ORDER BY Name");
+        assertEquals("SELECT Id, Name, Owner.Name FROM Account ORDER BY Name", query.getSoql());
+
+        QueryResult<Account> qResult = restClient.query(query, Account.class);
+        assertEquals(2, qResult.getRecords().size());
+        assertEquals("Jeff", qResult.getRecords().get(0).owner.name);
+        assertNull(qResult.getRecords().get(1).owner);
+        assertEquals("/services/data/v29.0/query/01gXX-2", query.getNextUri());
+    }
+
+    static class Account {
+        @JsonProperty("Id")
+        String id;
+        @JsonProperty("Name")
+        String name;
+        @JsonProperty("Owner")
+        Owner owner;
+    }
+
+    static class Owner {
+        @JsonProperty("Name")
+        String name;
+    }
+}
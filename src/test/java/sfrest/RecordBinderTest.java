@@ -0,0 +1,79 @@
+package sfrest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RecordBinderTest {
+
+    private RecordBinder binder = new RecordBinder(new ObjectMapper());
+
+    @Test
+    public void testFields() {
+        assertEquals(Arrays.asList("Id", "Name", "Owner.Name", "Owner.Manager.Name", "(SELECT Id, LastName FROM Contacts)"), binder.fields(Account.class));
+        assertEquals("SELECT Id, LastName FROM Contact", binder.select(Contact.class));
+        assertFalse(binder.isFlat(Account.class));
+        assertTrue(binder.isFlat(Contact.class));
+    }
+
+    @Test
+    public void testBindRecord() throws IOException {
+        String json = "{\"attributes\":{\"type\":\"Account\",\"url\":\"/services/data/v29.0/sobjects/Account/001\"},"
+                + "\"Id\":\"001\",\"Name\":\"Acme\",\"Owner\":{\"attributes\":{\"type\":\"User\"},\"Name\":\"Jeff\",\"Manager\":null},"
+                + "\"Contacts\":{\"totalSize\":2,\"done\":true,\"records\":["
+                + "{\"attributes\":{\"type\":\"Contact\"},\"Id\":\"003A\",\"LastName\":\"Fang\"},"
+                + "{\"attributes\":{\"type\":\"Contact\"},\"Id\":\"003B\",\"LastName\":\"Smith\"}]}}";
+
+        Account account = binder.reader(Account.class).readValue(json);
+        assertEquals("001", account.id);
+        assertEquals("Acme", account.name);
+        assertEquals("Jeff", account.owner.name);
+        assertNull(account.owner.manager);
+        assertEquals(2, account.contacts.size());
+        assertEquals("Smith", account.contacts.get(1).lastName);
+    }
+
+    @Test
+    public void testBindRecordWithoutChildren() throws IOException {
+        Account account = binder.reader(Account.class).readValue("{\"Id\":\"001\",\"Contacts\":null}");
+        assertNull(account.contacts);
+    }
+
+    @SObjectType("Account")
+    static class Account {
+        @JsonProperty("Id")
+        String id;
+        @JsonProperty("Name")
+        String name;
+        @JsonProperty("Owner")
+        User owner;
+        @JsonProperty("Contacts")
+        List<Contact> contacts;
+    }
+
+    static class User {
+        @JsonProperty("Name")
+        String name;
+        @JsonProperty("Manager")
+        Manager manager;
+    }
+
+    static class Manager {
+        @JsonProperty("Name")
+        String name;
+    }
+
+    static class Contact {
+        @JsonProperty("Id")
+        String id;
+        @JsonProperty("LastName")
+        String lastName;
+    }
+
+}
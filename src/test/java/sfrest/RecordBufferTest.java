@@ -0,0 +1,100 @@
+package sfrest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RecordBufferTest {
+
+    private static Map<String, ?> record(int i) {
+        Map<String, Object> owner = new LinkedHashMap<>();
+        owner.put("Name", "Owner " + i);
+
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("attributes", Collections.singletonMap("type", "Account"));
+        record.put("Id", "001" + i);
+        record.put("Amount", i * 1.5);
+        record.put("Owner", owner);
+        return record;
+    }
+
+    @Test
+    public void testSpillsPastRecordLimit() throws IOException {
+        Path file;
+        try (RecordBuffer buffer = new RecordBuffer(new ObjectMapper(), 100, Long.MAX_VALUE)) {
+            buffer.regionSize = 1000; // Records straddle mapped regions.
+            for (int i = 0; i < 1000; i++) {
+                buffer.handleRecord(record(i));
+            }
+
+            assertEquals(1000, buffer.size());
+            assertEquals(900, buffer.getSpilledRecords());
+            file = buffer.getFile();
+            assertTrue(Files.exists(file));
+
+            for (int pass = 0; pass < 2; pass++) {
+                int i = 0;
+                for (Map<String, ?> record : buffer) {
+                    assertEquals(record(i++), record);
+                }
+                assertEquals(1000, i);
+            }
+        }
+
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void testSpillsPastByteLimit() throws IOException {
+        long recordSize = RecordBuffer.estimateSize(record(0));
+        try (RecordBuffer buffer = new RecordBuffer(new ObjectMapper(), Integer.MAX_VALUE, recordSize * 10)) {
+            for (int i = 0; i < 50; i++) {
+                buffer.add(record(i));
+            }
+
+            assertEquals(40, buffer.getSpilledRecords(), 1);
+        }
+    }
+
+    @Test
+    public void testIteratorSeesRecordsAddedBeforeIt() throws IOException {
+        try (RecordBuffer buffer = new RecordBuffer(new ObjectMapper(), 2, Long.MAX_VALUE)) {
+            buffer.add(record(0));
+            buffer.add(record(1));
+            buffer.add(record(2));
+            Iterator<Map<String, ?>> it = buffer.iterator();
+            buffer.add(record(3));
+
+            int count = 0;
+            while (it.hasNext()) {
+                assertEquals(record(count++), it.next());
+            }
+            assertEquals(3, count);
+
+            count = 0;
+            for (Map<String, ?> record : buffer) {
+                assertEquals(record(count++), record);
+            }
+            assertEquals(4, count);
+        }
+    }
+
+    @Test
+    public void testNothingSpilledWithinLimits() throws IOException {
+        try (RecordBuffer buffer = new RecordBuffer(new ObjectMapper(), 10, Long.MAX_VALUE)) {
+            buffer.add(record(0));
+
+            assertNull(buffer.getFile());
+            assertEquals(record(0), buffer.iterator().next());
+        }
+    }
+}
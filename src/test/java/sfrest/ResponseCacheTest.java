@@ -0,0 +1,98 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ResponseCacheTest {
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private ResponseCache cache;
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private volatile int version = 1;
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/sobjects/Account", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if ("PATCH".equals(exchange.getRequestMethod())) {
+                    version++;
+                    exchange.sendResponseHeaders(204, -1);
+                    exchange.close();
+                    return;
+                }
+
+                String etag = "\"v" + version + "\"";
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+
+                fullResponses.incrementAndGet();
+                exchange.getResponseHeaders().set("ETag", etag);
+                StubServer.respondJson(exchange, 200, "{\"Id\":\"001A\",\"Name\":\"Acme " + version + "\"}");
+            }
+        });
+
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()));
+        cache = new ResponseCache();
+        restClient.setResponseCache(cache);
+    }
+
+    @After
+    public void clean() {
+        server.stop();
+    }
+
+    @Test
+    public void testConditionalGet() {
+        assertEquals("Acme 1", restClient.getSObject("Account", "001A").get("Name"));
+        assertEquals("Acme 1", restClient.getSObject("Account", "001A").get("Name"));
+
+        assertEquals(1, fullResponses.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+        assertTrue(cache.getTotalBytes() > 0);
+    }
+
+    @Test
+    public void testEntriesSurviveTokenRenewal() {
+        restClient.getSObject("Account", "001A");
+        restClient.getTokenStorage().clearToken();
+
+        assertEquals("Acme 1", restClient.getSObject("Account", "001A").get("Name"));
+        assertEquals(1, fullResponses.get());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testWriteInvalidates() {
+        restClient.getSObject("Account", "001A");
+        restClient.getMap(SFRestClient.BASE_URI_REST + "/sobjects/Account/001A", HttpMethod.PATCH, Collections.singletonMap("Name", "Acme 2"));
+        assertEquals(0, cache.size());
+
+        assertEquals("Acme 2", restClient.getSObject("Account", "001A").get("Name"));
+        assertEquals(2, fullResponses.get());
+    }
+
+    @Test
+    public void testSizeBound() {
+        restClient.setResponseCache(new ResponseCache(10, 1024, 10));
+        restClient.getSObject("Account", "001A");
+        assertEquals(0, restClient.getResponseCache().size());
+        assertEquals(1, restClient.getRestTemplate().getInterceptors().size());
+    }
+}
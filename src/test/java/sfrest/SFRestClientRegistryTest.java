@@ -0,0 +1,135 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SFRestClientRegistryTest {
+
+    private StubServer server;
+    private SFRestClientRegistry registry;
+    private StubTokenProvider org1;
+    private StubTokenProvider org2;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/sobjects/Account", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int current = inFlight.incrementAndGet();
+                synchronized (maxInFlight) {
+                    maxInFlight.set(Math.max(maxInFlight.get(), current));
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                String token = exchange.getRequestHeaders().getFirst("Authorization");
+                StubServer.respondJson(exchange, 200, "{\"token\":\"" + token + "\"}");
+            }
+        });
+
+        registry = new SFRestClientRegistry(new ConnectionConfig());
+        org1 = new StubTokenProvider(server.getUrl());
+        org2 = new StubTokenProvider(server.getUrl());
+        registry.register("org1", org1, null);
+        registry.register("org2", org2, null, 2);
+    }
+
+    @After
+    public void clean() throws Exception {
+        registry.destroy();
+        server.stop();
+    }
+
+    @Test
+    public void testClientsShareResourcesButNotTokens() throws Exception {
+        SFRestClient client1 = registry.getClient("org1");
+        SFRestClient client2 = registry.getClient("org2");
+
+        assertSame(client1, registry.getClient("org1"));
+        assertSame(client1.getConnectionPool(), client2.getConnectionPool());
+        assertSame(client1.getObjectMapper(), client2.getObjectMapper());
+        assertNotSame(client1.getTokenStorage(), client2.getTokenStorage());
+
+        client1.getMap(SFRestClient.BASE_URI_REST + "/sobjects/Account", HttpMethod.GET, null);
+        client2.getMap(SFRestClient.BASE_URI_REST + "/sobjects/Account", HttpMethod.GET, null);
+        assertEquals(1, org1.requestCount.get());
+        assertEquals(1, org2.requestCount.get());
+
+        client1.destroy();
+        Map<String, ?> result = client2.getMap(SFRestClient.BASE_URI_REST + "/sobjects/Account", HttpMethod.GET, null);
+        assertEquals("Bearer access-1", result.get("token"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownKey() {
+        registry.getClient("org3");
+    }
+
+    @Test
+    public void testConcurrencyCap() throws Exception {
+        final SFRestClient client = registry.getClient("org2");
+        assertEquals(2, client.getMaxConcurrentRequests());
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                results.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        return client.getMap(SFRestClient.BASE_URI_REST + "/sobjects/Account", HttpMethod.GET, null);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                assertNotNull(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    public void testIdleClientsEvicted() throws Exception {
+        SFRestClient client = registry.getClient("org1");
+        client.getMap(SFRestClient.BASE_URI_REST + "/sobjects/Account", HttpMethod.GET, null);
+        registry.getClient("org2");
+        assertEquals(2, registry.getClientCount());
+
+        assertEquals(0, registry.evictIdleClients());
+
+        registry.setIdleTimeout(0);
+        Thread.sleep(5);
+        assertEquals(2, registry.evictIdleClients());
+        assertEquals(0, registry.getClientCount());
+
+        SFRestClient recreated = registry.getClient("org1");
+        assertNotSame(client, recreated);
+        recreated.getMap(SFRestClient.BASE_URI_REST + "/sobjects/Account", HttpMethod.GET, null);
+        assertEquals(1, org1.requestCount.get()); // Token kept with the registration.
+    }
+}
@@ -0,0 +1,48 @@
+package sfrest;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static sfrest.Environment.PRODUCTION;
+
+/**
+ * Hands out tokens pointing at a {@link StubServer}, counting the token requests.
+ */
+class StubTokenProvider extends UserPassTokenProvider {
+
+    final AtomicInteger requestCount = new AtomicInteger();
+
+    volatile long delayMillis; // Simulates login latency.
+    volatile RuntimeException failure; // Thrown by token requests if set.
+
+    private final String instanceUrl;
+
+    StubTokenProvider(String instanceUrl) {
+        this.instanceUrl = instanceUrl;
+        setEnvironment(PRODUCTION);
+    }
+
+    @Override
+    public Token requestToken(SFRestTemplate template) {
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        int count = requestCount.incrementAndGet();
+        if (failure != null) {
+            throw failure;
+        }
+
+        Token token = new Token();
+        token.setId("https://login.salesforce.com/id/00D000000000001AAA/005000000000001AAA");
+        token.setIssueTime(new Date());
+        token.setInstanceUrl(instanceUrl);
+        token.setAccessToken("access-" + count);
+
+        return token;
+    }
+}
@@ -0,0 +1,218 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import sfrest.sync.FileWatermarkStore;
+import sfrest.sync.SyncEngine;
+import sfrest.sync.SyncResult;
+import sfrest.sync.SyncSink;
+import sfrest.sync.WatermarkStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SyncEngineTest {
+
+    private StubServer server;
+    private SFRestClient restClient;
+    private Path dir;
+    private WatermarkStore store;
+    private SyncEngine engine;
+
+    private final List<String> queries = new ArrayList<>();
+    private final List<String> changeRequests = new ArrayList<>();
+    private final List<Object> upserted = new ArrayList<>();
+    private final List<String> deleted = new ArrayList<>();
+    private int upsertCalls;
+    private final Set<String> stored = new TreeSet<>(); // Ids held by the sink
+    private Set<String> seen; // Ids upserted during a full load
+    private volatile String earliestDateAvailable = "2020-01-01T00:00:00.000+0000";
+
+    @Before
+    public void init() throws IOException {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String soql = exchange.getRequestURI().getQuery().substring(2);
+                queries.add(soql);
+
+                StringBuilder records = new StringBuilder();
+                if (soql.contains("WHERE Id IN")) {
+                    // 001C has been deleted since its update.
+                    for (String id : new String[]{"001A", "001B", "001E"}) {
+                        if (soql.contains("'" + id + "'")) {
+                            records.append(records.length() > 0 ? "," : "").append(record(id));
+                        }
+                    }
+                } else {
+                    for (int i = 0; i < 5; i++) {
+                        records.append(i > 0 ? "," : "").append(record("001" + i));
+                    }
+                }
+                StubServer.respondJson(exchange, 200, "{\"totalSize\":0,\"done\":true,\"records\":[" + records + "]}");
+            }
+        });
+        server.handle("/services/data/v29.0/sobjects/Account/updated/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                changeRequests.add(exchange.getRequestURI().getQuery());
+                StubServer.respondJson(exchange, 200, "{\"ids\":[\"001A\",\"001B\",\"001C\",\"001E\"],\"latestDateCovered\":\"2030-01-01T10:00:00.000+0000\"}");
+            }
+        });
+        server.handle("/services/data/v29.0/sobjects/Account/deleted/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                // 001E has been undeleted since.
+                StubServer.respondJson(exchange, 200, "{\"deletedRecords\":[{\"id\":\"001C\",\"deletedDate\":\"2030-01-01T09:30:00.000+0000\"},"
+                        + "{\"id\":\"001D\",\"deletedDate\":\"2030-01-01T09:40:00.000+0000\"},{\"id\":\"001E\",\"deletedDate\":\"2030-01-01T09:45:00.000+0000\"}],"
+                        + "\"earliestDateAvailable\":\"" + earliestDateAvailable + "\",\"latestDateCovered\":\"2030-01-01T09:59:00.000+0000\"}");
+            }
+        });
+        server.handle("/services/data/v29.0/sobjects/Account/describe", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                StubServer.respondJson(exchange, 200, "{\"name\":\"Account\",\"fields\":[{\"name\":\"Id\"},{\"name\":\"Name\"}]}");
+            }
+        });
+
+        restClient = new SFRestClient(new StubTokenProvider(server.getUrl()));
+        dir = Files.createTempDirectory("sync");
+        store = new FileWatermarkStore(dir.resolve("watermarks.properties"));
+        engine = new SyncEngine(restClient, store, new SyncSink() {
+            @Override
+            public void upsert(String sObjectType, List<Map<String, ?>> records) {
+                upsertCalls++;
+                for (Map<String, ?> record : records) {
+                    upserted.add(record.get("Id"));
+                    stored.add((String) record.get("Id"));
+                    if (seen != null) {
+                        seen.add((String) record.get("Id"));
+                    }
+                }
+            }
+
+            @Override
+            public void delete(String sObjectType, List<String> ids) {
+                deleted.addAll(ids);
+                stored.removeAll(ids);
+            }
+
+            @Override
+            public void beginFullLoad(String sObjectType) {
+                seen = new HashSet<>();
+            }
+
+            @Override
+            public void endFullLoad(String sObjectType) {
+                stored.retainAll(seen);
+                seen = null;
+            }
+        });
+        engine.setBatchSize(2);
+    }
+
+    @After
+    public void clean() throws IOException {
+        server.stop();
+        for (Path file : Files.newDirectoryStream(dir)) {
+            Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    private static String record(String id) {
+        return "{\"attributes\":{\"type\":\"Account\"},\"Id\":\"" + id + "\",\"Name\":\"Account " + id + "\"}";
+    }
+
+    @Test
+    public void testFirstSyncLoadsAllRecords() {
+        long start = System.currentTimeMillis();
+
+        SyncResult result = engine.sync("Account");
+
+        assertTrue(result.isFullLoad());
+        assertEquals(5, result.getUpserted());
+        assertEquals(Arrays.<Object>asList("0010", "0011", "0012", "0013", "0014"), upserted);
+        assertEquals(3, upsertCalls);
+        assertEquals(Arrays.asList("SELECT Id,Name FROM Account"), queries);
+        assertTrue(changeRequests.isEmpty());
+
+        long watermark = store.getWatermark("Account").getTime();
+        assertTrue(watermark <= start - engine.getClockSkew() + 1000 && watermark > start - engine.getClockSkew() - 1000);
+    }
+
+    @Test
+    public void testIncrementalSyncReadsOnlyChanges() throws ParseException {
+        store.saveWatermark("Account", new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)));
+        engine.setFields("Account", Arrays.asList("Name", "Id"));
+
+        SyncResult result = engine.sync("Account");
+
+        assertFalse(result.isFullLoad());
+        assertEquals(Arrays.<Object>asList("001A", "001B", "001E"), upserted);
+        assertEquals(Arrays.asList("001C", "001D"), deleted);
+        assertEquals(3, result.getUpserted());
+        assertEquals(2, result.getDeleted());
+        assertEquals(Arrays.asList("SELECT Id,Name FROM Account WHERE Id IN ('001A','001B')", "SELECT Id,Name FROM Account WHERE Id IN ('001C','001E')"), queries);
+        assertTrue(changeRequests.get(0).matches("start=\\d{4}-\\d\\d-\\d\\dT\\d\\d:\\d\\d:\\d\\dZ&end=.*"));
+
+        // The earlier of both covered dates, so no deletion is missed.
+        assertEquals(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").parse("2030-01-01T09:59:00.000+0000"), result.getWatermark());
+        assertEquals(result.getWatermark(), new FileWatermarkStore(dir.resolve("watermarks.properties")).getWatermark("Account"));
+    }
+
+    @Test
+    public void testRecentWatermarkSkipsSync() {
+        Date watermark = new Date(System.currentTimeMillis() - 10000);
+        store.saveWatermark("Account", watermark);
+
+        SyncResult result = engine.sync("Account");
+
+        assertEquals(watermark, result.getWatermark());
+        assertTrue(changeRequests.isEmpty());
+        assertTrue(queries.isEmpty());
+    }
+
+    @Test
+    public void testExpiredWatermarkReloads() {
+        store.saveWatermark("Account", new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(40)));
+        stored.addAll(Arrays.asList("0010", "0099")); // 0099 deleted while not syncing
+
+        assertTrue(engine.sync("Account").isFullLoad());
+        assertTrue(changeRequests.isEmpty());
+        assertEquals(new TreeSet<>(Arrays.asList("0010", "0011", "0012", "0013", "0014")), stored);
+    }
+
+    @Test
+    public void testWatermarkBeforeEarliestDeletionReloads() {
+        store.saveWatermark("Account", new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2)));
+        earliestDateAvailable = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+        stored.add("0099");
+
+        SyncResult result = engine.sync("Account");
+
+        assertTrue(result.isFullLoad());
+        assertEquals(5, result.getUpserted());
+        assertTrue(deleted.isEmpty());
+        assertFalse(stored.contains("0099"));
+        assertTrue(store.getWatermark("Account").getTime() > System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1));
+    }
+}
@@ -0,0 +1,191 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TokenAcquisitionTest {
+
+    private static final int THREADS = 32;
+
+    private StubServer server;
+    private StubTokenProvider tokenProvider;
+    private SFRestClient restClient;
+    private ExecutorService executor;
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/sobjects/Account", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                if ("Bearer access-1".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                    StubServer.respondJson(exchange, 401, "[{\"errorCode\":\"INVALID_SESSION_ID\",\"message\":\"Session expired or invalid\"}]");
+                } else {
+                    StubServer.respondJson(exchange, 200, "{\"Id\":\"001A\"}");
+                }
+            }
+        });
+
+        tokenProvider = new StubTokenProvider(server.getUrl());
+        tokenProvider.delayMillis = 200;
+        restClient = new SFRestClient(tokenProvider);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void clean() {
+        executor.shutdownNow();
+        server.stop();
+    }
+
+    @Test
+    public void testSingleFlightAcquisition() throws Exception {
+        List<Token> tokens = runConcurrently(new Callable<Token>() {
+            @Override
+            public Token call() {
+                return restClient.getToken();
+            }
+        });
+
+        assertEquals(1, tokenProvider.requestCount.get());
+        for (Token token : tokens) {
+            assertSame(tokens.get(0), token);
+        }
+    }
+
+    @Test
+    public void testSingleReloginAfterInvalidSession() throws Exception {
+        assertEquals("access-1", restClient.getToken().getAccessToken());
+
+        List<Object> results = runConcurrently(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return restClient.getSObject("Account", "001A");
+            }
+        });
+
+        assertEquals(THREADS, results.size());
+        assertEquals(2, tokenProvider.requestCount.get());
+    }
+
+    @Test
+    public void testScopesLogInConcurrently() throws Exception {
+        tokenProvider.delayMillis = 300;
+        final ThreadLocalScopeStorage storage = new ThreadLocalScopeStorage();
+        final SFRestClient scopedClient = new SFRestClient(tokenProvider, storage);
+
+        long start = System.currentTimeMillis();
+        List<Token> tokens = runConcurrently(new Callable<Token>() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Token call() {
+                storage.scope.set("session-" + threadCount.incrementAndGet() % 2);
+                return scopedClient.getToken();
+            }
+        });
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(2, tokenProvider.requestCount.get());
+        assertEquals(2, new HashSet<>(tokens).size());
+        assertTrue("logins serialized, took " + elapsed + " ms", elapsed < 550);
+    }
+
+    @Test
+    public void testFailureSharedWithWaiters() throws Exception {
+        tokenProvider.failure = new TokenException("invalid_grant", "authentication failure");
+
+        List<Object> results = runConcurrently(new Callable<Object>() {
+            @Override
+            public Object call() {
+                try {
+                    return restClient.getToken();
+                } catch (TokenException e) {
+                    return e;
+                }
+            }
+        });
+
+        assertEquals(1, tokenProvider.requestCount.get());
+        for (Object result : results) {
+            assertSame(tokenProvider.failure, result);
+        }
+    }
+
+    private <T> List<T> runConcurrently(final Callable<T> call) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    start.await();
+                    return call.call();
+                }
+            }));
+        }
+        start.countDown();
+
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Keeps a token per scope of the current thread, as session storage does per session.
+     */
+    private static class ThreadLocalScopeStorage implements ScopedTokenStorage {
+
+        final ThreadLocal<String> scope = new ThreadLocal<>();
+        private final Map<Object, Token> tokens = new ConcurrentHashMap<>();
+
+        @Override
+        public Object getScope() {
+            return scope.get();
+        }
+
+        @Override
+        public Token getToken() {
+            return tokens.get(getScope());
+        }
+
+        @Override
+        public void saveToken(Token token) {
+            tokens.put(getScope(), token);
+        }
+
+        @Override
+        public void clearToken() {
+            tokens.remove(getScope());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TokenRefreshTest {
+
+    private StubServer server;
+    private StubTokenProvider tokenProvider;
+    private SFRestClient restClient;
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/oauth2/token", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestBodies.add(StreamUtils.copyToString(exchange.getRequestBody(), StubServer.UTF_8));
+                StubServer.respondJson(exchange, 200, "{\"id\":\"https://login.salesforce.com/id/00D/005\","
+                        + "\"issued_at\":\"" + System.currentTimeMillis() + "\",\"instance_url\":\"" + server.getUrl() + "\","
+                        + "\"signature\":\"sig\",\"access_token\":\"refreshed\"}");
+            }
+        });
+        server.handle("/services/oauth2/revoke", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestBodies.add(StreamUtils.copyToString(exchange.getRequestBody(), StubServer.UTF_8));
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+
+        final URI baseUri = URI.create(server.getUrl() + "/services/oauth2/");
+        tokenProvider = new StubTokenProvider(server.getUrl());
+        tokenProvider.setClientId("client");
+        tokenProvider.setClientSecret("secret");
+        tokenProvider.setEnvironment(new Environment("Stub", "localhost") {
+            @Override
+            public URI getTokenURI() {
+                return baseUri.resolve("token");
+            }
+
+            @Override
+            public URI getRevokeTokenURI() {
+                return baseUri.resolve("revoke");
+            }
+        });
+
+        restClient = new SFRestClient(tokenProvider);
+    }
+
+    @After
+    public void clean() {
+        server.stop();
+    }
+
+    @Test
+    public void testRefreshToken() {
+        Token token = storeToken(new Date());
+        tokenProvider.refreshToken(restClient.getRestTemplate(), token);
+
+        assertEquals("grant_type=refresh_token&client_id=client&client_secret=secret&refresh_token=refresh", requestBodies.get(0));
+        assertEquals("refreshed", token.getAccessToken());
+        assertEquals("refresh", token.getRefreshToken());
+        assertEquals("sig", token.getSignature());
+    }
+
+    @Test
+    public void testRefresherSkipsFreshToken() {
+        Token token = storeToken(new Date());
+
+        assertFalse(new TokenRefresher(restClient).refreshIfExpiring());
+        assertSame(token, restClient.getTokenStorage().getToken());
+        assertTrue(requestBodies.isEmpty());
+    }
+
+    @Test
+    public void testRefresherRefreshesExpiringToken() {
+        Token token = storeToken(new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(116)));
+
+        assertTrue(new TokenRefresher(restClient).refreshIfExpiring());
+
+        Token refreshed = restClient.getTokenStorage().getToken();
+        assertEquals("refreshed", refreshed.getAccessToken());
+        assertEquals("refresh", refreshed.getRefreshToken());
+        assertEquals("stale", token.getAccessToken()); // The stale token isn't touched.
+        assertEquals(0, tokenProvider.requestCount.get());
+    }
+
+    @Test
+    public void testRevokeToken() {
+        Token token = storeToken(new Date());
+
+        tokenProvider.revokeToken(restClient.getRestTemplate(), token, false);
+        tokenProvider.revokeToken(restClient.getRestTemplate(), token, true);
+
+        assertEquals("token=stale", requestBodies.get(0));
+        assertEquals("token=refresh", requestBodies.get(1));
+    }
+
+    private Token storeToken(Date issueTime) {
+        Token token = new Token();
+        token.setIssueTime(issueTime);
+        token.setInstanceUrl(server.getUrl());
+        token.setAccessToken("stale");
+        token.setRefreshToken("refresh");
+        restClient.getTokenStorage().saveToken(token);
+        return token;
+    }
+}
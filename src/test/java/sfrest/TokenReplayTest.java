@@ -0,0 +1,95 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TokenReplayTest {
+
+    private StubServer server;
+    private StubTokenProvider tokenProvider;
+    private SFRestClient restClient;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<String> replays = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        server.handle("/services/data/v29.0/sobjects/Account", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                if ("Bearer access-1".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                    StubServer.respondJson(exchange, 401, "[{\"errorCode\":\"INVALID_SESSION_ID\",\"message\":\"Session expired or invalid\"}]");
+                } else {
+                    StubServer.respondJson(exchange, 200, "{\"Id\":\"001A\"}");
+                }
+            }
+        });
+
+        tokenProvider = new StubTokenProvider(server.getUrl());
+        restClient = new SFRestClient(tokenProvider);
+        restClient.setReplayListener(new ReplayListener() {
+            @Override
+            public void requestReplayed(HttpMethod method, String uri, long extraMillis) {
+                assertTrue(extraMillis >= 0);
+                replays.add(method + " " + uri);
+            }
+        });
+    }
+
+    @After
+    public void clean() {
+        server.stop();
+    }
+
+    @Test
+    public void testReplayIdempotentRequest() {
+        Map<String, ?> account = restClient.getSObject("Account", "001A");
+
+        assertEquals("001A", account.get("Id"));
+        assertEquals(2, requests.get());
+        assertEquals(2, tokenProvider.requestCount.get());
+        assertEquals("[GET /services/data/v29.0/sobjects/{type}/{id}]", replays.toString());
+    }
+
+    @Test
+    public void testNoReplayForPost() {
+        try {
+            restClient.getMap(SFRestClient.BASE_URI_REST + "/sobjects/Account", HttpMethod.POST, "{\"Name\":\"Test\"}");
+            fail();
+        } catch (TokenException e) {
+            assertEquals("INVALID_SESSION_ID", e.getErrorCode());
+        }
+
+        assertEquals(1, requests.get());
+        assertTrue(replays.isEmpty());
+        assertNull(restClient.getTokenStorage().getToken());
+    }
+
+    @Test
+    public void testNoReplayWhenDisabled() {
+        restClient.setReplayableMethods(EnumSet.noneOf(HttpMethod.class));
+        try {
+            restClient.getSObject("Account", "001A");
+            fail();
+        } catch (TokenException e) {
+            // expected
+        }
+
+        assertEquals(1, requests.get());
+        assertEquals(1, tokenProvider.requestCount.get());
+    }
+}
@@ -0,0 +1,98 @@
+package sfrest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class WarmUpTest {
+
+    private StubServer server;
+    private StubTokenProvider tokenProvider;
+    private SFRestClient restClient;
+    private final AtomicInteger versionRequests = new AtomicInteger();
+    private final AtomicInteger describeRequests = new AtomicInteger();
+
+    @Before
+    public void init() {
+        server = new StubServer();
+        final CountDownLatch arrived = new CountDownLatch(4);
+        server.handle("/services/data", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                versionRequests.incrementAndGet();
+                arrived.countDown();
+                try {
+                    arrived.await(5, TimeUnit.SECONDS); // Holds the connections until all requests are in flight.
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                StubServer.respondJson(exchange, 200, "[{\"label\":\"Spring '14\",\"url\":\"/services/data/v29.0\",\"version\":\"29.0\"}]");
+            }
+        });
+        server.handle("/services/data/v29.0/sobjects", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                describeRequests.incrementAndGet();
+                if (exchange.getRequestURI().getPath().endsWith("/describe")) {
+                    StubServer.respondJson(exchange, 200, "{\"name\":\"Account\",\"fields\":[]}");
+                } else {
+                    StubServer.respondJson(exchange, 200, "{\"encoding\":\"UTF-8\",\"maxBatchSize\":200,\"sobjects\":[]}");
+                }
+            }
+        });
+
+        ConnectionConfig config = new ConnectionConfig();
+        config.setMaxPerRoute(5);
+        tokenProvider = new StubTokenProvider(server.getUrl());
+        restClient = new SFRestClient(tokenProvider, new SFRestClient.DefaultTokenStorage(), config);
+    }
+
+    @After
+    public void clean() throws Exception {
+        restClient.destroy();
+        server.stop();
+    }
+
+    @Test
+    public void testWarmUp() {
+        MetadataCache cache = new MetadataCache();
+        cache.setPreloadTypes(Arrays.asList("Account"));
+        restClient.setMetadataCache(cache);
+        tokenProvider.delayMillis = 50;
+
+        WarmUpResult result = restClient.warmUp(4);
+
+        assertEquals(1, tokenProvider.requestCount.get());
+        assertTrue(result.getTokenMillis() >= 50);
+        assertEquals(4, versionRequests.get());
+        assertEquals(4, result.getConnections());
+        assertEquals(2, describeRequests.get());
+
+        restClient.listSObjects();
+        restClient.getSObjectMetadata("Account", true);
+        assertEquals(2, describeRequests.get());
+    }
+
+    @Test
+    public void testWarmUpWithoutConnectionsOrCache() throws Exception {
+        restClient.destroy();
+        restClient = new SFRestClient(tokenProvider, new SFRestClient.DefaultTokenStorage());
+
+        WarmUpResult result = restClient.warmUp(0);
+
+        assertEquals(1, tokenProvider.requestCount.get());
+        assertEquals(0, versionRequests.get());
+        assertEquals(-1, result.getConnections());
+        assertEquals(0, describeRequests.get());
+    }
+}
@@ -0,0 +1,71 @@
+package sfrest.http2;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AbstractClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+class Http2Response extends AbstractClientHttpResponse {
+
+    private final HttpResponse<InputStream> response;
+    private HttpHeaders headers;
+
+    Http2Response(HttpResponse<InputStream> response) {
+        this.response = response;
+    }
+
+    HttpClient.Version getVersion() {
+        return response.version();
+    }
+
+    @Override
+    public int getRawStatusCode() {
+        return response.statusCode();
+    }
+
+    /**
+     * HTTP/2 has no reason phrases, so it's the standard one of the status.
+     */
+    @Override
+    public String getStatusText() {
+        try {
+            return HttpStatus.valueOf(response.statusCode()).getReasonPhrase();
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        if (headers == null) {
+            headers = new HttpHeaders();
+            for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+                if (!header.getKey().startsWith(":")) {
+                    headers.put(header.getKey(), header.getValue());
+                }
+            }
+        }
+
+        return headers;
+    }
+
+    @Override
+    public InputStream getBody() {
+        return response.body();
+    }
+
+    @Override
+    public void close() {
+        try {
+            response.body().close();
+        } catch (IOException e) {
+            // Nothing left to release.
+        }
+    }
+}
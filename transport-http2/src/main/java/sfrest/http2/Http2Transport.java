@@ -0,0 +1,59 @@
+package sfrest.http2;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Transport of {@link sfrest.SFRestClient} on the {@code java.net.http} client, set with
+ * {@link sfrest.SFRestClient#setTransport(ClientHttpRequestFactory)}.
+ * <p>
+ * With HTTP/2, concurrent requests to an instance are multiplexed over a single connection, so they share one TLS
+ * session instead of opening a connection each. Servers without HTTP/2 are talked to with HTTP/1.1. Plain http
+ * connections are upgraded to h2c on the first request without a body.
+ * </p>
+ * <p>
+ * Request bodies are buffered, including the ones of streaming requests. Responses are streamed; they are not
+ * decompressed, use {@link sfrest.GzipCompression} for that.
+ * </p>
+ */
+public class Http2Transport implements ClientHttpRequestFactory {
+
+    private final HttpClient httpClient;
+    private Duration requestTimeout;
+
+    public Http2Transport() {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build());
+    }
+
+    public Http2Transport(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Time limit for receiving the response headers, null for none (the default).
+     */
+    public void setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new Http2Request(httpClient, uri, httpMethod, requestTimeout);
+    }
+}
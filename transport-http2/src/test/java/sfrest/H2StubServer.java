@@ -0,0 +1,127 @@
+package sfrest;
+
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local salesforce stand-in speaking HTTP/1.1 and h2c on the same port, recording the protocol of each request and
+ * counting connections.
+ */
+class H2StubServer {
+
+    final List<String> protocols = new CopyOnWriteArrayList<>();
+    final AtomicInteger connections = new AtomicInteger();
+
+    private final Server server = new Server();
+    private final ServerConnector connector;
+
+    H2StubServer() throws Exception {
+        HttpConfiguration config = new HttpConfiguration();
+        connector = new ServerConnector(server, new HttpConnectionFactory(config), new HTTP2CServerConnectionFactory(config));
+        connector.setHost("localhost");
+        connector.addBean(new Connection.Listener() {
+            @Override
+            public void onOpened(Connection connection) {
+                if (!connection.getClass().getSimpleName().startsWith("HTTP2")) {
+                    connections.incrementAndGet(); // Upgraded connections replace the HTTP/1.1 one on the same socket.
+                }
+            }
+
+            @Override
+            public void onClosed(Connection connection) {
+            }
+        });
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                baseRequest.setHandled(true);
+                protocols.add(request.getProtocol());
+                H2StubServer.this.handle(request, response);
+            }
+        });
+        server.start();
+    }
+
+    String getUrl() {
+        return "http://localhost:" + connector.getLocalPort();
+    }
+
+    void stop() throws Exception {
+        server.stop();
+    }
+
+    private void handle(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = request.getRequestURI();
+        String method = request.getMethod();
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+
+        if (path.equals("/services/data/v29.0/sobjects/Account/001A")) {
+            if ("PATCH".equals(method)) {
+                response.setStatus(204);
+            } else if ("Bearer access-1".equals(request.getHeader("Authorization")) && request.getParameter("expired") != null) {
+                respond(response, 401, "[{\"errorCode\":\"INVALID_SESSION_ID\",\"message\":\"Session expired or invalid\"}]");
+            } else {
+                pause(request);
+                respond(response, 200, "{\"attributes\":{\"type\":\"Account\"},\"Id\":\"001A\",\"Name\":\"Acme\"}");
+            }
+        } else if (path.equals("/services/data/v29.0/sobjects/Account") && "POST".equals(method)) {
+            respond(response, 201, "{\"id\":\"001B\",\"success\":true,\"received\":" + new String(body, StandardCharsets.UTF_8) + "}");
+        } else if (path.equals("/services/data/v29.0/upload")) {
+            respond(response, 200, "{\"method\":\"" + method + "\",\"bytes\":" + body.length + ",\"contentType\":\"" + request.getContentType() + "\"}");
+        } else if (path.equals("/services/data/v29.0/gzip")) {
+            StringBuilder json = new StringBuilder("{\"records\":[");
+            for (int i = 0; i < 200; i++) {
+                json.append(i > 0 ? "," : "").append("{\"Id\":\"").append(i).append("\"}");
+            }
+            byte[] bytes = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+            String acceptEncoding = request.getHeader("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(bytes);
+                }
+                bytes = compressed.toByteArray();
+                response.setHeader("Content-Encoding", "gzip");
+            }
+            response.setContentType("application/json;charset=UTF-8");
+            response.getOutputStream().write(bytes);
+        } else {
+            respond(response, 400, "[{\"errorCode\":\"NOT_FOUND\",\"message\":\"The requested resource does not exist\"}]");
+        }
+    }
+
+    private static void pause(HttpServletRequest request) {
+        String delay = request.getParameter("delay");
+        if (delay != null) {
+            try {
+                Thread.sleep(Long.parseLong(delay));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void respond(HttpServletResponse response, int status, String json) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json;charset=UTF-8");
+        response.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
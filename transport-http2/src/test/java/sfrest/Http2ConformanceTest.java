@@ -0,0 +1,50 @@
+package sfrest;
+
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import sfrest.http2.Http2Transport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class Http2ConformanceTest extends TransportConformanceTest {
+
+    @Override
+    protected void configure(SFRestClient client) {
+        client.setTransport(new Http2Transport());
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneConnection() throws Exception {
+        restClient.getSObject("Account", "001A"); // Upgrades the connection to h2c.
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        return restClient.getMap(SFRestClient.BASE_URI_REST + "/sobjects/Account/001A?delay=100", HttpMethod.GET, null);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                assertNotNull(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, server.connections.get());
+        assertEquals("HTTP/2.0", server.protocols.get(server.protocols.size() - 1));
+        assertEquals(33, server.protocols.size());
+        assertEquals(32, server.protocols.subList(1, 33).stream().filter("HTTP/2.0"::equals).count());
+    }
+}
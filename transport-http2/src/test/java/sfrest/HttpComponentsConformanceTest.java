@@ -0,0 +1,11 @@
+package sfrest;
+
+/**
+ * The default transport, Apache HttpClient over HTTP/1.1.
+ */
+public class HttpComponentsConformanceTest extends TransportConformanceTest {
+
+    @Override
+    protected void configure(SFRestClient client) {
+    }
+}
@@ -0,0 +1,32 @@
+package sfrest;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static sfrest.Environment.PRODUCTION;
+
+/**
+ * Hands out tokens pointing at a local stub server, "access-1", "access-2" and so on.
+ */
+class LocalTokenProvider extends UserPassTokenProvider {
+
+    final AtomicInteger requestCount = new AtomicInteger();
+
+    private final String instanceUrl;
+
+    LocalTokenProvider(String instanceUrl) {
+        this.instanceUrl = instanceUrl;
+        setEnvironment(PRODUCTION);
+    }
+
+    @Override
+    public Token requestToken(SFRestTemplate template) {
+        Token token = new Token();
+        token.setId("https://login.salesforce.com/id/00D000000000001AAA/005000000000001AAA");
+        token.setIssueTime(new Date());
+        token.setInstanceUrl(instanceUrl);
+        token.setAccessToken("access-" + requestCount.incrementAndGet());
+
+        return token;
+    }
+}
@@ -0,0 +1,122 @@
+package sfrest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseExtractor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Behavior every transport must preserve, run against a local stub for each transport.
+ */
+public abstract class TransportConformanceTest {
+
+    protected H2StubServer server;
+    protected LocalTokenProvider tokenProvider;
+    protected SFRestClient restClient;
+
+    /**
+     * Sets the transport under test on the client, if it's not the default one.
+     */
+    protected abstract void configure(SFRestClient client);
+
+    @Before
+    public void init() throws Exception {
+        server = new H2StubServer();
+        tokenProvider = new LocalTokenProvider(server.getUrl());
+        restClient = new SFRestClient(tokenProvider, new SFRestClient.DefaultTokenStorage());
+        configure(restClient);
+    }
+
+    @After
+    public void clean() throws Exception {
+        restClient.destroy();
+        server.stop();
+    }
+
+    @Test
+    public void testGet() {
+        Map<String, ?> account = restClient.getSObject("Account", "001A");
+
+        assertEquals("Acme", account.get("Name"));
+    }
+
+    @Test
+    public void testPostBody() {
+        Map<String, ?> result = restClient.getMap(SFRestClient.BASE_URI_REST + "/sobjects/Account", HttpMethod.POST,
+                Collections.singletonMap("Name", "Acme"));
+
+        assertEquals("001B", result.get("id"));
+        assertEquals(Collections.singletonMap("Name", "Acme"), result.get("received"));
+    }
+
+    @Test
+    public void testPatchWithoutResponseBody() {
+        assertNull(restClient.getString(SFRestClient.BASE_URI_REST + "/sobjects/Account/001A", HttpMethod.PATCH,
+                Collections.singletonMap("Name", "Acme 2")));
+    }
+
+    @Test
+    public void testErrorTranslated() {
+        try {
+            restClient.getMap(SFRestClient.BASE_URI_REST + "/sobjects/Contact/003A", HttpMethod.GET, null);
+            fail("Expected an error");
+        } catch (SFException e) {
+            assertEquals("NOT_FOUND", e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testExpiredTokenReplayed() {
+        Map<String, ?> account = restClient.getMap(SFRestClient.BASE_URI_REST + "/sobjects/Account/001A?expired=true", HttpMethod.GET, null);
+
+        assertEquals("Acme", account.get("Name"));
+        assertEquals(2, tokenProvider.requestCount.get());
+    }
+
+    @Test
+    public void testGzipResponseDecompressed() {
+        restClient.setGzipCompression(new GzipCompression());
+
+        Map<String, ?> result = restClient.getMap(SFRestClient.BASE_URI_REST + "/gzip", HttpMethod.GET, null);
+
+        assertEquals(200, ((List<?>) result.get("records")).size());
+    }
+
+    @Test
+    public void testStreamingUpload() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.valueOf("text/csv"));
+
+        Map<?, ?> result = restClient.executeStreaming(SFRestClient.BASE_URI_REST + "/upload", HttpMethod.PUT, headers,
+                new StreamingHttpOutputMessage.Body() {
+                    @Override
+                    public void writeTo(OutputStream out) throws IOException {
+                        for (int i = 0; i < 1000; i++) {
+                            out.write("Name\n".getBytes());
+                        }
+                    }
+                }, new ResponseExtractor<Map<?, ?>>() {
+                    @Override
+                    public Map<?, ?> extractData(ClientHttpResponse response) throws IOException {
+                        return restClient.getObjectMapper().readValue(response.getBody(), Map.class);
+                    }
+                });
+
+        assertEquals("PUT", result.get("method"));
+        assertEquals(5000, result.get("bytes"));
+        assertEquals("text/csv", result.get("contentType"));
+    }
+}